@@ -0,0 +1,29 @@
+package com.example.hotelbookingv2.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Изменения индексов и кэшей в памяти откладываются до коммита: до него параллельный
+ * поиск или промах перечитал бы из базы ещё старые строки и закэшировал их, а откат
+ * оставил бы индекс впереди базы. Вне транзакции изменение выполняется сразу.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        change.run();
+                    }
+                });
+    }
+}
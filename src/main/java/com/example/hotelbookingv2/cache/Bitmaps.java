@@ -0,0 +1,27 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.Comparator;
+import java.util.List;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Операции над битовыми картами, общие для индексов.
+ */
+final class Bitmaps {
+
+    private Bitmaps() {
+    }
+
+    /**
+     * Пересечение непустого списка карт. Список сортируется: пересечение с самой маленькой
+     * карты сразу отсекает большую часть.
+     */
+    static RoaringBitmap intersect(List<RoaringBitmap> matching) {
+        matching.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+        RoaringBitmap result = matching.get(0);
+        for (int i = 1; i < matching.size() && !result.isEmpty(); i++) {
+            result = RoaringBitmap.and(result, matching.get(i));
+        }
+        return result;
+    }
+}
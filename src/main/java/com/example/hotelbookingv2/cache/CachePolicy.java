@@ -0,0 +1,25 @@
+package com.example.hotelbookingv2.cache;
+
+public enum CachePolicy {
+
+    /**
+     * Классический LFU: вытесняется запись с наименьшим числом обращений.
+     */
+    LFU,
+
+    /**
+     * W-TinyLFU: небольшое LRU-окно перед основным сегментом и допуск по частотам
+     * из count-min sketch, которые периодически делятся пополам.
+     */
+    W_TINY_LFU;
+
+    /**
+     * expectedEntries — ожидаемое число записей; по нему W-TinyLFU выбирает размер sketch.
+     */
+    <T> EvictionPolicy<T> create(long maximumWeight, long expectedEntries) {
+        return switch (this) {
+            case LFU -> new LfuPolicy<>();
+            case W_TINY_LFU -> new WindowTinyLfuPolicy<>(maximumWeight, expectedEntries);
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.hotelbookingv2.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class CacheRegistry {
+
+    private static final String OBJECT_NAME_PREFIX = "com.example.hotelbookingv2:type=Cache,name=";
+
+    private final List<LfuCacheBase<?>> caches;
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    public CacheRegistry(List<LfuCacheBase<?>> caches) {
+        this.caches = caches;
+    }
+
+    public List<CacheStatsSnapshot> getStats() {
+        return caches.stream().map(LfuCacheBase::stats).toList();
+    }
+
+    public Optional<CacheStatsSnapshot> getStats(String name) {
+        return caches.stream()
+                .filter(cache -> cache.getName().equals(name))
+                .findFirst()
+                .map(LfuCacheBase::stats);
+    }
+
+    @PostConstruct
+    void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (LfuCacheBase<?> cache : caches) {
+            try {
+                ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + cache.getName());
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(new StandardMBean(new CacheStatsJmxView(cache),
+                        CacheStatsMXBean.class, true), name);
+                registeredNames.add(name);
+            } catch (JMException e) {
+                log.warn("Failed to register cache MBean {}: {}", cache.getName(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.warn("Failed to unregister cache MBean {}: {}", name, e.getMessage());
+            }
+        }
+        registeredNames.clear();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики кэша на LongAdder: запись не блокирует и почти не конкурирует между потоками.
+ */
+final class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadTimeNanos = new LongAdder();
+    private final Map<RemovalCause, LongAdder> evictions = new EnumMap<>(RemovalCause.class);
+
+    CacheStats() {
+        for (RemovalCause cause : RemovalCause.values()) {
+            evictions.put(cause, new LongAdder());
+        }
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordLoadSuccess(long loadTimeNanos) {
+        loadSuccesses.increment();
+        totalLoadTimeNanos.add(loadTimeNanos);
+    }
+
+    void recordLoadFailure(long loadTimeNanos) {
+        loadFailures.increment();
+        totalLoadTimeNanos.add(loadTimeNanos);
+    }
+
+    void recordEviction(RemovalCause cause, long count) {
+        evictions.get(cause).add(count);
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long loadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    long loadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    long totalLoadTimeNanos() {
+        return totalLoadTimeNanos.sum();
+    }
+
+    Map<RemovalCause, Long> evictionCounts() {
+        Map<RemovalCause, Long> counts = new EnumMap<>(RemovalCause.class);
+        evictions.forEach((cause, count) -> counts.put(cause, count.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Живое представление статистики кэша для JMX: каждый атрибут читается из свежего снимка.
+ */
+final class CacheStatsJmxView implements CacheStatsMXBean {
+
+    private final LfuCacheBase<?> cache;
+
+    CacheStatsJmxView(LfuCacheBase<?> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+        return cache.stats().loadSuccessCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return cache.stats().loadFailureCount();
+    }
+
+    @Override
+    public long getTotalLoadTimeNanos() {
+        return cache.stats().totalLoadTimeNanos();
+    }
+
+    @Override
+    public long getCoalescedLoadCount() {
+        return cache.stats().coalescedLoadCount();
+    }
+
+    @Override
+    public Map<String, Long> getEvictionCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        cache.stats().evictionCounts().forEach((cause, count) -> counts.put(cause.name(), count));
+        return counts;
+    }
+
+    @Override
+    public long getEntryCount() {
+        return cache.stats().entryCount();
+    }
+
+    @Override
+    public long getWeightedSize() {
+        return cache.stats().weightedSize();
+    }
+
+    @Override
+    public long getMaximumWeight() {
+        return cache.getMaximumWeight();
+    }
+}
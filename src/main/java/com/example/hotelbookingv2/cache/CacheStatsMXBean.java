@@ -0,0 +1,28 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.Map;
+
+public interface CacheStatsMXBean {
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getLoadSuccessCount();
+
+    long getLoadFailureCount();
+
+    long getTotalLoadTimeNanos();
+
+    long getCoalescedLoadCount();
+
+    Map<String, Long> getEvictionCounts();
+
+    long getEntryCount();
+
+    long getWeightedSize();
+
+    long getMaximumWeight();
+}
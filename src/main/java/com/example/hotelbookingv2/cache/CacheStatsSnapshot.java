@@ -0,0 +1,18 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.Map;
+
+public record CacheStatsSnapshot(
+        String name,
+        long hitCount,
+        long missCount,
+        double hitRate,
+        long loadSuccessCount,
+        long loadFailureCount,
+        long totalLoadTimeNanos,
+        long coalescedLoadCount,
+        Map<RemovalCause, Long> evictionCounts,
+        long entryCount,
+        long weightedSize,
+        long maximumWeight) {
+}
@@ -0,0 +1,14 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Как прогреть один кэш: loader получает пачку ключей из снимка и кладёт их значения в кэш.
+ */
+public record CacheWarmer(LfuCacheBase<?> cache, Consumer<List<String>> loader) {
+
+    public String name() {
+        return cache.getName();
+    }
+}
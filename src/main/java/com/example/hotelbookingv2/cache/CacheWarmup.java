@@ -0,0 +1,169 @@
+package com.example.hotelbookingv2.cache;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Прогрев кэшей после рестарта. Самые горячие ключи каждого кэша периодически и при
+ * остановке пишутся в локальный файл, а при старте загружаются из базы параллельными
+ * пачками. Прогрев идёт в {@link ApplicationRunner}, поэтому приложение переходит
+ * в readiness ACCEPTING_TRAFFIC только после него или по истечении бюджета времени.
+ */
+@Slf4j
+@Component
+public class CacheWarmup implements ApplicationRunner {
+
+    private static final char SEPARATOR = '\t';
+
+    private final List<CacheWarmer> warmers;
+    private final Path snapshotFile;
+    private final int topKeys;
+    private final int batchSize;
+    private final int parallelism;
+    private final Duration timeBudget;
+    // Пока прогрев не закончен, в кэшах мало ключей, и снимок не должен затереть прежний
+    private volatile boolean warmedUp;
+
+    public CacheWarmup(List<CacheWarmer> warmers,
+                       @Value("${cache.warmup.snapshot-file:cache-warmup/hot-keys.txt}")
+                       Path snapshotFile,
+                       @Value("${cache.warmup.top-keys:1000}") int topKeys,
+                       @Value("${cache.warmup.batch-size:100}") int batchSize,
+                       @Value("${cache.warmup.parallelism:4}") int parallelism,
+                       @Value("${cache.warmup.time-budget:30s}") Duration timeBudget) {
+        this.warmers = warmers;
+        this.snapshotFile = snapshotFile;
+        this.topKeys = topKeys;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    /**
+     * Загружает ключи из снимка и ждёт не дольше бюджета времени. Незавершённые пачки
+     * прерываются: лучше начать принимать трафик полупрогретым, чем не стартовать.
+     */
+    public void warmUp() {
+        try {
+            Map<String, List<String>> snapshot = readSnapshot();
+            if (snapshot.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            AtomicInteger loaded = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+            try {
+                for (CacheWarmer warmer : warmers) {
+                    List<String> keys = snapshot.getOrDefault(warmer.name(), List.of());
+                    for (int from = 0; from < keys.size(); from += batchSize) {
+                        List<String> batch = keys.subList(from, Math.min(keys.size(), from + batchSize));
+                        pool.execute(() -> loadBatch(warmer, batch, loaded));
+                    }
+                }
+                pool.shutdown();
+                if (!pool.awaitTermination(timeBudget.toMillis(), TimeUnit.MILLISECONDS)) {
+                    log.warn("Cache warm-up exceeded its {} budget, {} keys loaded", timeBudget,
+                            loaded.get());
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                pool.shutdownNow();
+            }
+            log.info("Cache warm-up loaded {} keys in {} ms", loaded.get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            warmedUp = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.warmup.snapshot-interval:PT5M}",
+            initialDelayString = "${cache.warmup.snapshot-interval:PT5M}")
+    public void saveSnapshot() {
+        if (!warmedUp) {
+            return;
+        }
+        try {
+            Path directory = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "hot-keys", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (CacheWarmer warmer : warmers) {
+                    for (String key : warmer.cache().hottestKeys(topKeys)) {
+                        if (key.indexOf('\n') < 0 && key.indexOf(SEPARATOR) < 0) {
+                            writer.write(warmer.name() + SEPARATOR + key);
+                            writer.newLine();
+                        }
+                    }
+                }
+            }
+            // Читатель при старте видит либо прежний снимок, либо новый целиком
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Cache hot-key snapshot saved to {}", snapshotFile);
+        } catch (IOException e) {
+            log.warn("Cache hot-key snapshot not saved: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        saveSnapshot();
+    }
+
+    private void loadBatch(CacheWarmer warmer, List<String> batch, AtomicInteger loaded) {
+        try {
+            warmer.loader().accept(batch);
+            loaded.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Cache warm-up batch failed for {}: {}", warmer.name(), e.getMessage());
+        }
+    }
+
+    private Map<String, List<String>> readSnapshot() {
+        Map<String, List<String>> snapshot = new LinkedHashMap<>();
+        if (!Files.exists(snapshotFile)) {
+            log.info("No cache hot-key snapshot at {}, starting cold", snapshotFile);
+            return snapshot;
+        }
+        try {
+            for (String line : Files.readAllLines(snapshotFile, StandardCharsets.UTF_8)) {
+                int separator = line.indexOf(SEPARATOR);
+                if (separator > 0) {
+                    snapshot.computeIfAbsent(line.substring(0, separator), name -> new ArrayList<>())
+                            .add(line.substring(separator + 1));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cache hot-key snapshot not read: {}", e.getMessage());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.hotelbookingv2.cache;
+
+/**
+ * Порядок вытеснения записей кэша. Все методы вызываются только под блокировкой вытеснения.
+ */
+interface EvictionPolicy<T> {
+
+    void onAdd(LfuCacheBase.Entry<T> entry);
+
+    void onAccess(LfuCacheBase.Entry<T> entry);
+
+    void onRemove(LfuCacheBase.Entry<T> entry);
+
+    void onWeightChanged(LfuCacheBase.Entry<T> entry, int delta);
+
+    /**
+     * Выбирает запись для вытеснения перед добавлением candidate, когда кэш заполнен.
+     * Может вернуть сам candidate — тогда новая запись в кэш не допускается. Если
+     * candidate равен {@code null}, кэш переполнен из-за потяжелевшей записи.
+     */
+    LfuCacheBase.Entry<T> selectVictim(LfuCacheBase.Entry<T> candidate);
+
+    /**
+     * Оценка частоты обращений к записи, по которой выбираются горячие ключи.
+     */
+    int frequency(LfuCacheBase.Entry<T> entry);
+
+    void clear();
+}
@@ -1,11 +1,103 @@
 package com.example.hotelbookingv2.cache;
 
 import com.example.hotelbookingv2.model.Facility;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+/**
+ * Справочник удобств целиком в памяти. Удобств мало и меняются они редко, поэтому вместо
+ * вытесняемого кэша хранится неизменяемый снимок: id → название и название → id.
+ * Чтение идёт без блокировок по текущему снимку, изменение собирает новый снимок
+ * и подменяет его атомарно. Промах по снимку означает, что удобства нет и в базе.
+ */
+@Slf4j
 @Component
-public class FacilityCache extends LfuCacheList<Facility> {
-    public FacilityCache() {
-        super(6);
+public class FacilityCache {
+
+    private final LazyIndex<Snapshot> snapshot = new LazyIndex<>();
+
+    public Snapshot get(Supplier<? extends Collection<Facility>> loader) {
+        return snapshot.get(() -> Snapshot.of(loader.get()),
+                loaded -> log.debug("Facility catalogue loaded: {} entries", loaded.size()));
+    }
+
+    public void put(Facility facility) {
+        snapshot.update(current -> current.with(facility));
+    }
+
+    public void remove(String id) {
+        snapshot.update(current -> current.without(id));
+    }
+
+    /**
+     * Сбрасывает снимок; следующее чтение загрузит справочник заново.
+     */
+    public void clear() {
+        snapshot.clear();
+    }
+
+    public static final class Snapshot {
+
+        private final Map<String, String> namesById;
+        private final Map<String, String> idsByName;
+
+        private Snapshot(Map<String, String> namesById) {
+            this.namesById = Collections.unmodifiableMap(namesById);
+            Map<String, String> ids = new HashMap<>(namesById.size() * 2);
+            namesById.forEach((id, name) -> ids.put(name, id));
+            this.idsByName = Collections.unmodifiableMap(ids);
+        }
+
+        static Snapshot of(Collection<Facility> facilities) {
+            Map<String, String> names = new LinkedHashMap<>();
+            for (Facility facility : facilities) {
+                names.put(facility.getId(), facility.getName());
+            }
+            return new Snapshot(names);
+        }
+
+        Snapshot with(Facility facility) {
+            Map<String, String> names = new LinkedHashMap<>(namesById);
+            names.put(facility.getId(), facility.getName());
+            return new Snapshot(names);
+        }
+
+        Snapshot without(String id) {
+            if (!namesById.containsKey(id)) {
+                return this;
+            }
+            Map<String, String> names = new LinkedHashMap<>(namesById);
+            names.remove(id);
+            return new Snapshot(names);
+        }
+
+        public String nameOf(String id) {
+            return namesById.get(id);
+        }
+
+        public String idOf(String name) {
+            return idsByName.get(name);
+        }
+
+        public boolean contains(String id) {
+            return namesById.containsKey(id);
+        }
+
+        /**
+         * id → название в порядке загрузки; добавленные позже удобства идут в конце.
+         */
+        public Map<String, String> names() {
+            return namesById;
+        }
+
+        public int size() {
+            return namesById.size();
+        }
     }
 }
@@ -1,11 +1,187 @@
 package com.example.hotelbookingv2.cache;
 
-import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.view.HotelSummary;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.KeysetPage;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Кэш выборок отелей по городу и категории. Выборка хранит только массив id, сами отели
+ * лежат один раз в {@link HotelEntityCache} и достаются оттуда пакетным чтением: память
+ * растёт с числом отелей, а не с числом запросов, и изменённый отель сразу виден во всех
+ * выборках. Для выборок ведётся обратный индекс, так что запись отеля вытесняет только те
+ * выборки, в которые он входил или должен попасть, а остальной кэш остаётся тёплым.
+ * Массив id хранится отсортированным, и страница выборки находится двоичным поиском
+ * по курсору: из кэша отелей читаются только отели этой страницы.
+ */
 @Component
-public class HotelCache extends LfuCacheList<Hotel> {
-    public HotelCache() {
-        super(3);
+public class HotelCache extends LfuCache<String[]> {
+
+    // Метка отсутствующего фильтра; URLEncoder её всегда экранирует, так что с городом не спутать
+    private static final String ANY = "~";
+
+    private final HotelEntityCache entityCache;
+    private final QueryKeyIndex queryIndex = new QueryKeyIndex();
+
+    public HotelCache(@Value("${cache.hotel.maximum-weight:50000}") long maximumWeight,
+                      @Value("${cache.hotel.policy:W_TINY_LFU}") CachePolicy policy,
+                      @Value("${cache.hotel.expire-after-write:10m}") Duration expireAfterWrite,
+                      @Value("${cache.hotel.refresh-after-write:8m}") Duration refreshAfterWrite,
+                      @Qualifier("executor") Executor executor,
+                      HotelEntityCache entityCache) {
+        super(maximumWeight, policy, (key, ids) -> Math.max(1, ids.length));
+        this.entityCache = entityCache;
+        setExpireAfterWrite(expireAfterWrite);
+        setRefreshAfterWrite(refreshAfterWrite, executor);
+    }
+
+    /**
+     * Страница выборки после id after (null — с начала): query выдаёт id отелей при промахе
+     * по выборке, byIds загружает отели страницы, которых ещё нет в кэше отелей. Отели,
+     * удалённые между этими шагами, пропускаются.
+     */
+    public KeysetPage<HotelView> getPage(String city, String category, String after, int limit,
+                                         Supplier<List<String>> query,
+                                         Function<Collection<String>, List<HotelView>> byIds) {
+        IdPage page = idPage(city, category, after, limit, query);
+        List<HotelView> hotels = List.copyOf(entityCache.getAll(page.ids(), missing -> byIds
+                .apply(missing)
+                .stream()
+                .collect(Collectors.toMap(HotelView::id, Function.identity()))).values());
+        return KeysetPage.of(hotels, page.lastKey());
+    }
+
+    /**
+     * Страница кратких сведений из той же выборки. Отели, снимки которых уже есть в кэше
+     * отелей, берутся оттуда; остальные byIds читает проекцией, и в кэш отелей они
+     * не попадают — номеров у них нет.
+     */
+    public KeysetPage<HotelSummary> getSummaryPage(String city, String category, String after,
+            int limit, Supplier<List<String>> query,
+            Function<Collection<String>, List<HotelSummary>> byIds) {
+        IdPage page = idPage(city, category, after, limit, query);
+        Map<String, HotelSummary> summaries = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : page.ids()) {
+            HotelView cached = entityCache.get(id);
+            if (cached != null) {
+                summaries.put(id, HotelSummary.from(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            byIds.apply(missing).forEach(summary -> summaries.put(summary.id(), summary));
+        }
+        List<HotelSummary> result = page.ids().stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return KeysetPage.of(result, page.lastKey());
+    }
+
+    // id страницы и ключ курсора следующей; null — страница последняя
+    private record IdPage(List<String> ids, String lastKey) {
+    }
+
+    private IdPage idPage(String city, String category, String after, int limit,
+                          Supplier<List<String>> query) {
+        String[] ids = get(queryKey(city, category), key -> {
+            String[] loaded = query.get().toArray(String[]::new);
+            Arrays.sort(loaded);
+            return loaded;
+        });
+        int from = 0;
+        if (after != null) {
+            int found = Arrays.binarySearch(ids, after);
+            from = found >= 0 ? found + 1 : -found - 1;
+        }
+        int to = Math.min(from + limit, ids.length);
+        return new IdPage(Arrays.asList(ids).subList(from, to),
+                to < ids.length ? ids[to - 1] : null);
+    }
+
+    public HotelView getHotel(String id, Function<String, HotelView> loader) {
+        return entityCache.get(id, loader);
+    }
+
+    public void putHotel(HotelView hotel) {
+        entityCache.put(hotel.id(), hotel);
+    }
+
+    public void removeHotel(String id) {
+        entityCache.remove(id);
+    }
+
+    public void clearHotels() {
+        entityCache.clear();
+    }
+
+    /**
+     * Вытесняет выборки, результат которых зависит от отеля с такими городом и категорией.
+     * При изменении отеля вызывается и для старых, и для новых значений атрибутов.
+     */
+    public void invalidateQueries(String city, String category) {
+        for (String key : queryIndex.affectedKeys(city, category)) {
+            remove(key);
+        }
+        // Выборка, которая загружается прямо сейчас, в индексе ещё не зарегистрирована
+        discardLoads(key -> affects(parseQueryKey(key), city, category));
+    }
+
+    private static boolean affects(QueryFilter filter, String city, String category) {
+        return (filter.city() == null || filter.city().equals(city))
+                && (filter.category() == null || filter.category().equals(category));
+    }
+
+    @Override
+    protected void onInsert(String key, String[] ids) {
+        QueryFilter filter = parseQueryKey(key);
+        queryIndex.register(key, filter.city(), filter.category());
+    }
+
+    @Override
+    protected void onRemoval(String key, String[] ids, RemovalCause cause) {
+        queryIndex.unregister(key);
+    }
+
+    static String queryKey(String city, String category) {
+        return encode(city) + ":" + encode(category);
+    }
+
+    /**
+     * Фильтры выборки по её ключу — так прогрев кэша повторяет выборки из снимка.
+     */
+    public static QueryFilter parseQueryKey(String key) {
+        String[] parts = key.split(":", 2);
+        return new QueryFilter(decode(parts[0]), parts.length > 1 ? decode(parts[1]) : null);
+    }
+
+    public record QueryFilter(String city, String category) {
+    }
+
+    private static String encode(String value) {
+        return value == null ? ANY : URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return ANY.equals(value) ? null : URLDecoder.decode(value, StandardCharsets.UTF_8);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.example.hotelbookingv2.cache;
+
+import com.example.hotelbookingv2.view.HotelView;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Отели по id — единственное место, где в кэше лежат снимки {@link HotelView}.
+ * Выборки {@link HotelCache} хранят только id и собирают результат отсюда.
+ * Вытесненные снимки уходят в уровень вне кучи, если он включён.
+ */
+@Component
+public class HotelEntityCache extends LfuCache<HotelView> {
+    public HotelEntityCache(@Value("${cache.hotel-entity.maximum-weight:50000}") long maximumWeight,
+                            @Value("${cache.hotel-entity.policy:W_TINY_LFU}") CachePolicy policy,
+                            @Value("${cache.hotel-entity.expire-after-write:10m}")
+                            Duration expireAfterWrite,
+                            @Value("${cache.hotel-entity.off-heap:0}") DataSize offHeap) {
+        super(maximumWeight, policy, Weigher.singleton());
+        setExpireAfterWrite(expireAfterWrite);
+        enableOffHeapTier(offHeap.toBytes(), new HotelSnapshotCodec());
+    }
+}
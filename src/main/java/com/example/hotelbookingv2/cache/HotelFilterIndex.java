@@ -0,0 +1,229 @@
+package com.example.hotelbookingv2.cache;
+
+import com.example.hotelbookingv2.view.HotelFilterEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Инвертированный индекс отелей по атрибутам фильтра: каждому городу и каждой категории
+ * соответствует сжатая битовая карта порядковых номеров отелей. Выборка по нескольким
+ * фильтрам — пересечение карт, начиная с самой маленькой, поэтому новое измерение фильтра
+ * добавляется значением в {@link Dimension}, а не ещё одним методом репозитория.
+ * Индекс строится одним запросом при первой выборке и дальше поддерживается записями отелей;
+ * порядковые номера удалённых отелей переиспользуются, и карты остаются плотными.
+ */
+@Slf4j
+@Component
+public class HotelFilterIndex {
+
+    public enum Dimension { CITY, CATEGORY }
+
+    private static final Dimension[] DIMENSIONS = Dimension.values();
+
+    private final LazyIndex<Index> index = new LazyIndex<>();
+
+    /**
+     * id отелей, подходящих под фильтры; null в фильтре означает «любое значение».
+     * При первом обращении индекс строится по loader.
+     */
+    public List<String> find(String city, String category,
+                             Supplier<? extends Collection<HotelFilterEntry>> loader) {
+        Map<Dimension, String> filters = new EnumMap<>(Dimension.class);
+        if (city != null) {
+            filters.put(Dimension.CITY, city);
+        }
+        if (category != null) {
+            filters.put(Dimension.CATEGORY, category);
+        }
+        return load(loader).find(filters);
+    }
+
+    public void put(String id, String city, String category) {
+        index.modify(current -> current.put(new HotelFilterEntry(id, city, category)));
+    }
+
+    public void remove(String id) {
+        index.modify(current -> current.remove(id));
+    }
+
+    /**
+     * Сбрасывает индекс; следующая выборка построит его заново.
+     */
+    public void clear() {
+        index.clear();
+    }
+
+    public int size() {
+        Index current = index.peek();
+        return current == null ? 0 : current.size();
+    }
+
+    private Index load(Supplier<? extends Collection<HotelFilterEntry>> loader) {
+        return index.get(() -> {
+            Index loaded = new Index();
+            loader.get().forEach(loaded::put);
+            loaded.optimize();
+            return loaded;
+        }, loaded -> log.info("Hotel filter index built: {} hotels", loaded.size()));
+    }
+
+    private static final class Index {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        // По порядковому номеру: id и значения измерений; у свободных номеров — null
+        private final List<String> ids = new ArrayList<>();
+        private final List<String[]> values = new ArrayList<>();
+        private final Deque<Integer> free = new ArrayDeque<>();
+        private final Map<Dimension, Map<String, RoaringBitmap>> bitmaps =
+                new EnumMap<>(Dimension.class);
+        private final RoaringBitmap live = new RoaringBitmap();
+
+        Index() {
+            for (Dimension dimension : DIMENSIONS) {
+                bitmaps.put(dimension, new HashMap<>());
+            }
+        }
+
+        List<String> find(Map<Dimension, String> filters) {
+            lock.readLock().lock();
+            try {
+                List<RoaringBitmap> matching = new ArrayList<>(filters.size());
+                for (Map.Entry<Dimension, String> filter : filters.entrySet()) {
+                    RoaringBitmap bitmap = bitmaps.get(filter.getKey()).get(filter.getValue());
+                    if (bitmap == null) {
+                        return List.of();
+                    }
+                    matching.add(bitmap);
+                }
+                return toIds(matching.isEmpty() ? live : Bitmaps.intersect(matching));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private List<String> toIds(RoaringBitmap bitmap) {
+            List<String> result = new ArrayList<>(bitmap.getCardinality());
+            bitmap.forEach((int ordinal) -> result.add(ids.get(ordinal)));
+            return result;
+        }
+
+        void put(HotelFilterEntry entry) {
+            String[] updated = new String[DIMENSIONS.length];
+            for (Dimension dimension : DIMENSIONS) {
+                updated[dimension.ordinal()] = value(entry, dimension);
+            }
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.get(entry.id());
+                if (ordinal == null) {
+                    ordinal = allocate(entry.id());
+                    live.add(ordinal);
+                } else {
+                    String[] previous = values.get(ordinal);
+                    if (Arrays.equals(previous, updated)) {
+                        return;
+                    }
+                    unindex(ordinal, previous);
+                }
+                values.set(ordinal, updated);
+                for (Dimension dimension : DIMENSIONS) {
+                    String value = updated[dimension.ordinal()];
+                    if (value != null) {
+                        bitmaps.get(dimension).computeIfAbsent(value, v -> new RoaringBitmap())
+                                .add(ordinal);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private static String value(HotelFilterEntry entry, Dimension dimension) {
+            return switch (dimension) {
+                case CITY -> entry.city();
+                case CATEGORY -> entry.category();
+            };
+        }
+
+        void remove(String id) {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.remove(id);
+                if (ordinal == null) {
+                    return;
+                }
+                unindex(ordinal, values.get(ordinal));
+                live.remove(ordinal);
+                ids.set(ordinal, null);
+                values.set(ordinal, null);
+                free.push(ordinal);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return ordinals.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void optimize() {
+            lock.writeLock().lock();
+            try {
+                live.runOptimize();
+                bitmaps.values().forEach(byValue -> byValue.values()
+                        .forEach(RoaringBitmap::runOptimize));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private int allocate(String id) {
+            Integer ordinal = free.poll();
+            if (ordinal == null) {
+                ordinal = ids.size();
+                ids.add(id);
+                values.add(null);
+            } else {
+                ids.set(ordinal, id);
+            }
+            ordinals.put(id, ordinal);
+            return ordinal;
+        }
+
+        private void unindex(int ordinal, String[] previous) {
+            for (Dimension dimension : DIMENSIONS) {
+                String value = previous[dimension.ordinal()];
+                if (value == null) {
+                    continue;
+                }
+                Map<String, RoaringBitmap> byValue = bitmaps.get(dimension);
+                RoaringBitmap bitmap = byValue.get(value);
+                if (bitmap != null) {
+                    bitmap.remove(ordinal);
+                    if (bitmap.isEmpty()) {
+                        byValue.remove(value);
+                    }
+                }
+            }
+        }
+    }
+}
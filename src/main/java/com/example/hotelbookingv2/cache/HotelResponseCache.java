@@ -0,0 +1,97 @@
+package com.example.hotelbookingv2.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Готовые JSON-ответы {@code GET /hotels/{id}}: компактные байты и ETag для каждого отеля.
+ * Ответ на запрос с совпавшим {@code If-None-Match} строится без сервиса, маппера и Jackson.
+ * Лимит задаётся в байтах. Любая запись отеля или его номеров убирает ответ из кэша.
+ * ETag — хэш байтов ответа: одинаковое содержимое получает одну метку на всех узлах,
+ * после истечения срока и после рестарта, а изменённое — новую.
+ */
+@Component
+public class HotelResponseCache extends LfuCache<HotelResponseCache.Response> {
+
+    private final ObjectWriter writer;
+
+    public HotelResponseCache(@Value("${cache.hotel-response.maximum-weight:16777216}") long maximumWeight,
+                              @Value("${cache.hotel-response.expected-entries:4096}")
+                              long expectedEntries,
+                              @Value("${cache.hotel-response.policy:W_TINY_LFU}") CachePolicy policy,
+                              @Value("${cache.hotel-response.expire-after-write:10m}")
+                              Duration expireAfterWrite,
+                              ObjectMapper objectMapper) {
+        super(maximumWeight, expectedEntries, policy,
+                (key, response) -> response.body().length);
+        setExpireAfterWrite(expireAfterWrite);
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Готовый ответ по id; при промахе dtoLoader строит DTO, и он сериализуется один раз.
+     */
+    public Response getOrRender(String id, Function<String, ?> dtoLoader) {
+        return get(id, key -> render(dtoLoader.apply(key)));
+    }
+
+    /**
+     * Убирает ответ после коммита: собранный до него ответ отдавал бы старый отель
+     * со свежим ETag весь срок жизни записи.
+     */
+    public void invalidate(String hotelId) {
+        if (hotelId != null) {
+            AfterCommit.run(() -> remove(hotelId));
+        }
+    }
+
+    private Response render(Object dto) {
+        try {
+            byte[] body = writer.writeValueAsBytes(dto);
+            return new Response(body, etag(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    public record Response(byte[] body, String etag) {
+
+        /**
+         * Совпадает ли ETag с заголовком {@code If-None-Match}: список через запятую,
+         * слабые метки {@code W/} и {@code *} учитываются.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.hotelbookingv2.cache;
+
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.RoomView;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отель вместе с номерами и их удобствами — всё, что нужно для ответа {@code GET /hotels/{id}}.
+ */
+public final class HotelSnapshotCodec implements SnapshotCodec<HotelView> {
+
+    @Override
+    public void write(HotelView hotel, DataOutput out) throws IOException {
+        SnapshotCodec.writeString(out, hotel.id());
+        SnapshotCodec.writeString(out, hotel.name());
+        SnapshotCodec.writeString(out, hotel.city());
+        SnapshotCodec.writeString(out, hotel.category());
+        SnapshotCodec.writeString(out, hotel.availableFromDate());
+        out.writeInt(hotel.rooms().size());
+        for (RoomView room : hotel.rooms()) {
+            RoomSnapshotCodec.writeRoom(room, out);
+        }
+    }
+
+    @Override
+    public HotelView read(DataInput in) throws IOException {
+        String id = SnapshotCodec.readString(in);
+        String name = SnapshotCodec.readString(in);
+        String city = SnapshotCodec.readString(in);
+        String category = SnapshotCodec.readString(in);
+        String availableFromDate = SnapshotCodec.readString(in);
+        int count = in.readInt();
+        List<RoomView> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // id отеля у номеров не хранится: он тот же, что у самого отеля
+            rooms.add(RoomSnapshotCodec.readRoom(in, id));
+        }
+        return new HotelView(id, name, city, category, availableFromDate, rooms);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Канал внутри одного процесса: сообщение сразу доставляется всем подписчикам.
+ * Используется при запуске одного узла и в тестах, где несколько шин делят один канал.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "in-memory",
+        matchIfMissing = true)
+public class InMemoryInvalidationTransport implements InvalidationTransport {
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String payload) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(payload);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener, Runnable onGap) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.hotelbookingv2.cache;
+
+import com.example.hotelbookingv2.model.Facility;
+import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.model.Room;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Рассылает изменения отелей, номеров и удобств остальным узлам, чтобы они вытеснили устаревшие
+ * копии из своих кэшей. Внутри транзакции события копятся и уходят одной пачкой после
+ * коммита, так что массовый импорт номеров даёт несколько сообщений, а не тысячи, а
+ * откатившиеся изменения не рассылаются вовсе. Свои сообщения узел пропускает: локальные
+ * кэши сервисы уже обновили сами, а кэш второго уровня Hibernate — сама транзакция.
+ * На чужих узлах вместе с нашими кэшами вытесняются и записи кэша второго уровня.
+ */
+@Slf4j
+@Component
+public class InvalidationBus {
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final InvalidationTransport transport;
+    private final HotelCache hotelCache;
+    private final RoomCache roomCache;
+    private final HotelResponseCache hotelResponseCache;
+    private final NegativeCache negativeCache;
+    private final FacilityCache facilityCache;
+    private final HotelFilterIndex filterIndex;
+    private final RoomFacilityIndex roomFacilityIndex;
+    private final RoomPriceIndex roomPriceIndex;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public InvalidationBus(InvalidationTransport transport, HotelCache hotelCache,
+                           RoomCache roomCache, HotelResponseCache hotelResponseCache,
+                           NegativeCache negativeCache, FacilityCache facilityCache,
+                           HotelFilterIndex filterIndex, RoomFacilityIndex roomFacilityIndex,
+                           RoomPriceIndex roomPriceIndex,
+                           EntityManagerFactory entityManagerFactory) {
+        this.transport = transport;
+        this.hotelCache = hotelCache;
+        this.roomCache = roomCache;
+        this.hotelResponseCache = hotelResponseCache;
+        this.negativeCache = negativeCache;
+        this.facilityCache = facilityCache;
+        this.filterIndex = filterIndex;
+        this.roomFacilityIndex = roomFacilityIndex;
+        this.roomPriceIndex = roomPriceIndex;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        transport.subscribe(this::receive, this::clearAll);
+    }
+
+    public void hotelChanged(String id, String city, String category) {
+        publish(InvalidationEvent.hotel(id, city, category));
+    }
+
+    public void hotelDeleted(String id, String city, String category) {
+        publish(InvalidationEvent.hotelDeleted(id, city, category));
+    }
+
+    public void roomChanged(String id, String hotelId) {
+        publish(InvalidationEvent.room(id, hotelId));
+    }
+
+    public void facilityChanged(String id) {
+        publish(InvalidationEvent.facility(id));
+    }
+
+    private void publish(InvalidationEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(List.of(event));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<InvalidationEvent> pending =
+                (Set<InvalidationEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<InvalidationEvent> batch = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            send(batch);
+                        }
+
+                        @Override
+                        public void afterCompletion(int status) {
+                            TransactionSynchronizationManager.unbindResourceIfPossible(
+                                    InvalidationBus.this);
+                        }
+                    });
+            pending = batch;
+        }
+        // Повтор события переносится в конец: последнее событие об отеле несёт его
+        // текущие город и категорию
+        pending.remove(event);
+        pending.add(event);
+    }
+
+    // Сообщение: id узла первой строкой, дальше по событию на строку, не длиннее MAX_PAYLOAD
+    private void send(Collection<InvalidationEvent> events) {
+        StringBuilder payload = new StringBuilder(nodeId);
+        int count = 0;
+        for (InvalidationEvent event : events) {
+            String line = event.encode();
+            if (count > 0 && payload.length() + 1 + line.length()
+                    > InvalidationTransport.MAX_PAYLOAD) {
+                transport.publish(payload.toString());
+                payload.setLength(0);
+                payload.append(nodeId);
+                count = 0;
+            }
+            payload.append('\n').append(line);
+            count++;
+        }
+        if (count > 0) {
+            transport.publish(payload.toString());
+        }
+    }
+
+    void receive(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines[0].equals(nodeId)) {
+            return;
+        }
+        List<InvalidationEvent> events = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            events.add(InvalidationEvent.decode(lines[i]));
+        }
+        org.hibernate.Cache secondLevel = secondLevelCache();
+        events.forEach(event -> apply(event, secondLevel));
+        // Отметки изменения таблиц на этом узле не сдвигались, поэтому закэшированные
+        // результаты запросов сами не устареют
+        secondLevel.evictDefaultQueryRegion();
+        log.debug("Applied {} cache invalidations from node {}", events.size(), lines[0]);
+    }
+
+    private void apply(InvalidationEvent event, org.hibernate.Cache secondLevel) {
+        switch (event.kind()) {
+            case HOTEL, HOTEL_DELETED -> {
+                if (event.kind() == InvalidationEvent.Kind.HOTEL) {
+                    filterIndex.put(event.id(), event.city(), event.category());
+                } else {
+                    filterIndex.remove(event.id());
+                }
+                // Город отеля хранится в строках его номеров
+                roomPriceIndex.invalidateHotel(event.id());
+                hotelCache.removeHotel(event.id());
+                hotelCache.invalidateQueries(event.city(), event.category());
+                hotelResponseCache.invalidate(event.id());
+                negativeCache.invalidate(NegativeCache.Kind.HOTEL, event.id());
+                secondLevel.evictEntityData(Hotel.class, event.id());
+                secondLevel.evictCollectionData(Hotel.class.getName() + ".rooms", event.id());
+            }
+            case ROOM -> {
+                roomCache.remove(event.id());
+                roomFacilityIndex.invalidateRoom(event.id());
+                roomPriceIndex.invalidateRoom(event.id());
+                hotelResponseCache.invalidate(event.hotelId());
+                negativeCache.invalidate(NegativeCache.Kind.ROOM, event.id());
+                secondLevel.evictEntityData(Room.class, event.id());
+                secondLevel.evictCollectionData(Room.class.getName() + ".facilities", event.id());
+                if (event.hotelId() != null) {
+                    // Номера входят в снимок отеля
+                    hotelCache.removeHotel(event.hotelId());
+                    secondLevel.evictCollectionData(Hotel.class.getName() + ".rooms",
+                            event.hotelId());
+                }
+            }
+            case FACILITY -> {
+                facilityCache.clear();
+                roomFacilityIndex.clear();
+                // Названия удобств вшиты в снимки номеров и отелей
+                roomCache.clear();
+                hotelCache.clearHotels();
+                hotelResponseCache.clear();
+                secondLevel.evictEntityData(Facility.class, event.id());
+                secondLevel.evictCollectionData(Facility.class.getName() + ".rooms", event.id());
+            }
+        }
+    }
+
+    private org.hibernate.Cache secondLevelCache() {
+        return entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+    }
+
+    // Сообщения могли потеряться: ничего из кэшей больше нельзя считать свежим
+    private void clearAll() {
+        log.warn("Cache invalidation messages may have been lost, clearing shared caches");
+        hotelCache.clear();
+        hotelCache.clearHotels();
+        roomCache.clear();
+        hotelResponseCache.clear();
+        negativeCache.clear();
+        facilityCache.clear();
+        filterIndex.clear();
+        roomFacilityIndex.clear();
+        roomPriceIndex.clear();
+        secondLevelCache().evictAllRegions();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.hotelbookingv2.cache;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Изменение одной сущности, о котором нужно сообщить остальным узлам. Для отеля передаются
+ * город и категория, чтобы узел вытеснил только зависящие от них выборки и обновил индекс
+ * фильтров: из нескольких событий об одном отеле последнее несёт его текущие атрибуты.
+ * Для номера передаётся отель, чей готовый ответ устарел. Для удобства хватает id:
+ * справочник перечитывается целиком.
+ */
+public record InvalidationEvent(Kind kind, String id, String city, String category,
+                                String hotelId) {
+
+    public enum Kind { HOTEL, HOTEL_DELETED, ROOM, FACILITY }
+
+    private static final char SEPARATOR = '\t';
+    private static final String NULL = "~";
+
+    public static InvalidationEvent hotel(String id, String city, String category) {
+        return new InvalidationEvent(Kind.HOTEL, id, city, category, null);
+    }
+
+    public static InvalidationEvent hotelDeleted(String id, String city, String category) {
+        return new InvalidationEvent(Kind.HOTEL_DELETED, id, city, category, null);
+    }
+
+    public static InvalidationEvent room(String id, String hotelId) {
+        return new InvalidationEvent(Kind.ROOM, id, null, null, hotelId);
+    }
+
+    public static InvalidationEvent facility(String id) {
+        return new InvalidationEvent(Kind.FACILITY, id, null, null, null);
+    }
+
+    /**
+     * Одна строка из ASCII-символов: поля экранируются URLEncoder-ом, так что длина строки
+     * в символах равна её длине в байтах.
+     */
+    String encode() {
+        return code(kind) + String.valueOf(SEPARATOR) + escape(id) + SEPARATOR
+                + escape(city) + SEPARATOR + escape(category) + SEPARATOR + escape(hotelId);
+    }
+
+    static InvalidationEvent decode(String line) {
+        String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Некорректное событие инвалидации: " + line);
+        }
+        Kind kind = switch (fields[0]) {
+            case "H" -> Kind.HOTEL;
+            case "D" -> Kind.HOTEL_DELETED;
+            case "R" -> Kind.ROOM;
+            case "F" -> Kind.FACILITY;
+            default -> throw new IllegalArgumentException("Неизвестный тип события: " + fields[0]);
+        };
+        return new InvalidationEvent(kind, unescape(fields[1]), unescape(fields[2]),
+                unescape(fields[3]), unescape(fields[4]));
+    }
+
+    private static char code(Kind kind) {
+        return switch (kind) {
+            case HOTEL -> 'H';
+            case HOTEL_DELETED -> 'D';
+            case ROOM -> 'R';
+            case FACILITY -> 'F';
+        };
+    }
+
+    private static String escape(String value) {
+        return value == null ? NULL : URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String unescape(String value) {
+        return NULL.equals(value) ? null : URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Канал, по которому узлы обмениваются сообщениями об инвалидации.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Наибольшая длина одного сообщения в байтах; у NOTIFY в PostgreSQL предел 8000.
+     */
+    int MAX_PAYLOAD = 7900;
+
+    void publish(String payload);
+
+    /**
+     * listener получает все сообщения канала, в том числе отправленные этим узлом.
+     * onGap вызывается, когда часть сообщений могла потеряться, например после
+     * переподключения к базе или когда какой-то узел не смог отправить сообщение.
+     */
+    void subscribe(Consumer<String> listener, Runnable onGap);
+}
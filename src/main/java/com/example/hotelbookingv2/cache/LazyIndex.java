@@ -0,0 +1,74 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Структура в памяти, которая строится целиком при первом обращении и дальше
+ * поддерживается изменениями. Номер изменений хранится вместе со структурой, и каждое
+ * изменение подменяет эту пару. Построение ставит свой результат сравнением с парой,
+ * которую видело в начале: если за время построения пришло хоть одно изменение, результат
+ * не ставится, иначе изменение, пришедшее, пока структуры ещё нет, потерялось бы.
+ */
+final class LazyIndex<T> {
+
+    private record Versioned<T>(long version, T value) {
+    }
+
+    private final AtomicReference<Versioned<T>> current =
+            new AtomicReference<>(new Versioned<>(0, null));
+
+    /**
+     * Текущая структура, а если её нет — построенная build. Построенная ставится, только
+     * если за время построения ничего не менялось; onInstalled вызывается после установки.
+     */
+    T get(Supplier<T> build, Consumer<T> onInstalled) {
+        Versioned<T> seen = current.get();
+        if (seen.value() != null) {
+            return seen.value();
+        }
+        T built = build.get();
+        if (current.compareAndSet(seen, new Versioned<>(seen.version(), built))) {
+            onInstalled.accept(built);
+        }
+        return built;
+    }
+
+    /**
+     * Изменяет стоящую структуру на месте; если её нет, изменение войдёт в построение.
+     */
+    void modify(Consumer<T> change) {
+        T existing = current.updateAndGet(
+                versioned -> new Versioned<>(versioned.version() + 1, versioned.value())).value();
+        if (existing != null) {
+            change.accept(existing);
+        }
+    }
+
+    /**
+     * Подменяет неизменяемую структуру новой версией; если её нет, изменение войдёт
+     * в построение.
+     */
+    void update(UnaryOperator<T> change) {
+        current.updateAndGet(versioned -> new Versioned<>(versioned.version() + 1,
+                versioned.value() == null ? null : change.apply(versioned.value())));
+    }
+
+    void clear() {
+        current.updateAndGet(versioned -> new Versioned<>(versioned.version() + 1, null));
+    }
+
+    T peek() {
+        return current.get().value();
+    }
+
+    /**
+     * Номер последнего изменения: по нему дочитывание устаревших строк понимает,
+     * что за время чтения пришли новые изменения.
+     */
+    long modifications() {
+        return current.get().version();
+    }
+}
@@ -8,4 +8,17 @@ public class LfuCache<T> extends LfuCacheBase<T> {
     public LfuCache(int capacity) {
         super(capacity);
     }
+
+    public LfuCache(int capacity, CachePolicy policy) {
+        super(capacity, policy);
+    }
+
+    public LfuCache(long maximumWeight, CachePolicy policy, Weigher<T> weigher) {
+        super(maximumWeight, policy, weigher);
+    }
+
+    public LfuCache(long maximumWeight, long expectedEntries, CachePolicy policy,
+                    Weigher<T> weigher) {
+        super(maximumWeight, expectedEntries, policy, weigher);
+    }
 }
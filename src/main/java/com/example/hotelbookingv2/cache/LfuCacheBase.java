@@ -1,88 +1,750 @@
 package com.example.hotelbookingv2.cache;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public abstract class LfuCacheBase<T> {
 
-    private final int capacity;
-    private final Map<String, Entry<T>> cache = new HashMap<>();
+    private final long maximumWeight;
+    private final Weigher<T> weigher;
+    private final ConcurrentHashMap<String, Entry<T>> cache = new ConcurrentHashMap<>();
+
+    // Чтения идут мимо блокировки: обращения копятся в буфере и учитываются при его сливе.
+    // Структура политики вытеснения меняется только под evictionLock.
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer<Entry<T>> readBuffer = new ReadBuffer<>();
+    private final EvictionPolicy<T> policy;
+    // Пишется только под блокировкой, volatile — чтобы статистику можно было читать без неё
+    private volatile long totalWeight;
+
+    // Срок жизни проверяется лениво при чтении, без отдельной задачи на каждый ключ
+    private long expireAfterWriteNanos;
+    private long refreshAfterWriteNanos;
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+    private LongSupplier ticker = System::nanoTime;
+    private final ConcurrentHashMap<String, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    // Загрузки, идущие прямо сейчас: остальные промахи по тому же ключу ждут их результата
+    private final ConcurrentHashMap<String, CompletableFuture<T>> inFlight =
+            new ConcurrentHashMap<>();
+    private final LongAdder coalescedLoads = new LongAdder();
+    // Растёт при каждой явной инвалидации: пакетная загрузка, которую она застала,
+    // в кэш не кладётся — загрузчик мог прочитать строки ещё до записи
+    private volatile long invalidations;
+    private final CacheStats stats = new CacheStats();
+
+    // Необязательный второй уровень вне кучи: туда уходят записи, вытесненные по размеру
+    private OffHeapStore offHeap;
+    private SnapshotCodec<T> codec;
+    // Вытесненные по размеру значения под блокировкой только запоминаются, а сериализуются
+    // уже после её снятия. Запись или удаление ключа за это время убирает его из demoting,
+    // и устаревший снимок вне кучи не попадёт. Оба поля меняются только под evictionLock
+    private final List<Demotion<T>> pendingDemotions = new ArrayList<>();
+    private final Map<String, Demotion<T>> demoting = new HashMap<>();
+
+    private record Demotion<T>(String id, T value, long writeTime) {
+    }
 
     protected static class Entry<T> {
-        T value;
+        final String key;
+        volatile T value;
+        volatile long writeTime;
+        volatile Function<String, T> loader;
+        boolean alive = true;
+
+        // Вес и состояние политик вытеснения меняются только под блокировкой
+        int weight;
         int frequency;
+        LfuPolicy.Bucket<T> bucket;
+        byte queue;
 
-        Entry(T value) {
+        Entry(String key, T value, Function<String, T> loader, long writeTime) {
+            this.key = key;
             this.value = value;
-            this.frequency = 1;
+            this.loader = loader;
+            this.writeTime = writeTime;
         }
     }
 
     protected LfuCacheBase(int capacity) {
-        this.capacity = capacity;
+        this(capacity, CachePolicy.LFU);
+    }
+
+    protected LfuCacheBase(int capacity, CachePolicy policy) {
+        this(capacity, policy, Weigher.singleton());
+    }
+
+    /**
+     * Кэш, ограниченный суммарным весом записей, а не их количеством.
+     */
+    protected LfuCacheBase(long maximumWeight, CachePolicy policy, Weigher<T> weigher) {
+        this(maximumWeight, maximumWeight, policy, weigher);
+    }
+
+    /**
+     * Кэш, ограниченный весом, с ожидаемым числом записей expectedEntries: оно нужно,
+     * когда вес записи — не единица, а, например, размер в байтах.
+     */
+    protected LfuCacheBase(long maximumWeight, long expectedEntries, CachePolicy policy,
+                           Weigher<T> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: "
+                    + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        if (expectedEntries <= 0) {
+            throw new IllegalArgumentException("Expected entries must be positive: "
+                    + expectedEntries);
+        }
+        this.policy = policy.create(maximumWeight, expectedEntries);
+    }
+
+    /**
+     * Срок жизни записи с момента записи; {@code null} или ноль отключают истечение.
+     */
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWriteNanos = toNanos(expireAfterWrite);
+    }
+
+    /**
+     * Возраст, после которого читаемая запись перезагружается в фоне своим загрузчиком.
+     * Пока идёт перезагрузка, читатели получают прежнее значение.
+     */
+    public void setRefreshAfterWrite(Duration refreshAfterWrite, Executor executor) {
+        this.refreshAfterWriteNanos = toNanos(refreshAfterWrite);
+        if (executor != null) {
+            this.refreshExecutor = executor;
+        }
+    }
+
+    public void setTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+    }
+
+    /**
+     * Включает уровень вне кучи заданного объёма. Записи, вытесненные из кучи по размеру,
+     * сериализуются туда codec-ом, а промах в куче сначала ищет значение там и поднимает
+     * его обратно. Каждый ключ живёт только на одном уровне.
+     */
+    public void enableOffHeapTier(long capacityBytes, SnapshotCodec<T> codec) {
+        if (capacityBytes <= 0) {
+            return;
+        }
+        this.codec = codec;
+        this.offHeap = new OffHeapStore(capacityBytes);
+    }
+
+    public int offHeapSize() {
+        return offHeap == null ? 0 : offHeap.size();
     }
 
     public T get(String id) {
         Entry<T> entry = cache.get(id);
         if (entry == null) {
-            log.info("❌ LFU Cache: Item NOT found in cache. ID: {}", id);
+            T value = offHeap == null ? null : readOffHeap(id);
+            if (value != null) {
+                stats.recordHit();
+                log.trace("LFU Cache: Item found off heap. ID: {}", id);
+                return value;
+            }
+            stats.recordMiss();
+            log.trace("LFU Cache: Item NOT found in cache. ID: {}", id);
+            return null;
+        }
+
+        long now = ticker.getAsLong();
+        if (expireAfterWriteNanos > 0 && now - entry.writeTime >= expireAfterWriteNanos) {
+            removeExpired(entry);
+            stats.recordMiss();
+            log.trace("LFU Cache: Item expired. ID: {}", id);
             return null;
         }
 
-        entry.frequency++;
+        if (readBuffer.offer(entry)) {
+            tryDrainReadBuffer();
+        }
+        if (refreshAfterWriteNanos > 0 && entry.loader != null
+                && now - entry.writeTime >= refreshAfterWriteNanos) {
+            scheduleRefresh(entry);
+        }
 
-        log.info("✅ LFU Cache: Item found and retrieved from cache. ID: {},"
-                + " Access frequency: {}", id, entry.frequency);
+        stats.recordHit();
+        log.trace("LFU Cache: Item found and retrieved from cache. ID: {}", id);
 
         return entry.value;
     }
 
+    /**
+     * Возвращает значение из кэша, а при промахе загружает его loader-ом. Для одного ключа
+     * одновременно выполняется только одна загрузка, остальные вызовы ждут её результата.
+     * Исключение загрузчика пробрасывается всем ожидающим и в кэш не попадает,
+     * как и {@code null}. Если ключ инвалидировали, пока шла загрузка, её результат
+     * возвращается, но в кэш не кладётся, а следующий промах загружает ключ заново.
+     */
+    public T get(String id, Function<String, T> loader) {
+        T cached = get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(id, load);
+        if (existing != null) {
+            coalescedLoads.increment();
+            log.trace("LFU Cache: Waiting for in-flight load. ID: {}", id);
+            return await(existing);
+        }
+
+        try {
+            // Значение могло появиться между промахом и регистрацией загрузки
+            T value = getIfPresent(id);
+            if (value == null) {
+                value = load(id, loader);
+                if (value != null) {
+                    // remove и clear снимают загрузку из inFlight: её результат уже устарел
+                    putLoaded(id, value, loader, () -> inFlight.get(id) == load);
+                }
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, load);
+        }
+    }
+
+    /**
+     * Пакетное чтение: найденные значения берутся из кэша, а все промахи загружаются
+     * одним вызовом loader-а и кладутся в кэш. Результат идёт в порядке ids; ключей,
+     * которых нет и после загрузки, в нём нет.
+     */
+    public Map<String, T> getAll(Collection<String> ids,
+                                 Function<Set<String>, Map<String, T>> loader) {
+        Map<String, T> found = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String id : ids) {
+            T value = get(id);
+            if (value != null) {
+                found.put(id, value);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long seen = invalidations;
+            Map<String, T> loaded = load(Collections.unmodifiableSet(missing), loader);
+            for (String id : missing) {
+                T value = loaded.get(id);
+                if (value != null) {
+                    putLoaded(id, value, null, () -> invalidations == seen);
+                    found.put(id, value);
+                }
+            }
+        }
+
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String id : ids) {
+            T value = found.get(id);
+            if (value != null) {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Сколько вызовов {@link #get(String, Function)} дождались чужой загрузки вместо своей.
+     */
+    public long getCoalescedLoadCount() {
+        return coalescedLoads.sum();
+    }
+
     public void put(String id, T value) {
-        if (cache.containsKey(id)) {
+        put(id, value, null);
+    }
+
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    public CacheStatsSnapshot stats() {
+        long hits = stats.hitCount();
+        long misses = stats.missCount();
+        long requests = hits + misses;
+        return new CacheStatsSnapshot(
+                getName(),
+                hits,
+                misses,
+                requests == 0 ? 1.0 : (double) hits / requests,
+                stats.loadSuccessCount(),
+                stats.loadFailureCount(),
+                stats.totalLoadTimeNanos(),
+                coalescedLoads.sum(),
+                stats.evictionCounts(),
+                cache.size(),
+                weightedSize(),
+                maximumWeight);
+    }
+
+    /**
+     * Кладёт значение вместе с загрузчиком, которым запись будет обновляться в фоне
+     * при включённом refreshAfterWrite.
+     */
+    public void put(String id, T value, Function<String, T> loader) {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            long now = ticker.getAsLong();
+            int weight = weigh(id, value);
+            if (offHeap != null) {
+                offHeap.remove(id);
+                demoting.remove(id);
+            }
             Entry<T> entry = cache.get(id);
+            if (entry != null) {
+                entry.loader = loader;
+                entry.writeTime = now;
+                policy.onAccess(entry);
+                replaceValue(entry, value, weight);
+
+                log.trace("LFU Cache: Item updated in cache. ID: {}", id);
+            } else {
+                insert(id, value, loader, weight, now);
+            }
+        } finally {
+            unlockEviction();
+        }
+    }
+
+    // Кладёт загруженное значение, только если ключ не инвалидировали, пока шла загрузка.
+    // Проверка и запись идут под той же блокировкой, что и remove, так что гонки между ними нет
+    private void putLoaded(String id, T value, Function<String, T> loader,
+                           BooleanSupplier current) {
+        evictionLock.lock();
+        try {
+            if (current.getAsBoolean()) {
+                put(id, value, loader);
+            } else {
+                log.trace("LFU Cache: Discarded load invalidated in flight. ID: {}", id);
+            }
+        } finally {
+            unlockEviction();
+        }
+    }
+
+    // Добавляет новую запись; вызывается под блокировкой вытеснения
+    private void insert(String id, T value, Function<String, T> loader, int weight,
+                        long writeTime) {
+        if (weight > maximumWeight) {
+            stats.recordEviction(RemovalCause.SIZE, 1);
+            onRemoval(id, value, RemovalCause.SIZE);
+            demote(id, value, writeTime);
+            log.debug("LFU Cache: Item is heavier than the whole cache. ID: {},"
+                    + " weight: {}", id, weight);
+            return;
+        }
+        Entry<T> entry = new Entry<>(id, value, loader, writeTime);
+        entry.weight = weight;
+        while (totalWeight + weight > maximumWeight) {
+            Entry<T> victim = policy.selectVictim(entry);
+            if (victim == entry || victim == null) {
+                stats.recordEviction(RemovalCause.SIZE, 1);
+                onRemoval(id, value, RemovalCause.SIZE);
+                demote(id, value, writeTime);
+                log.trace("LFU Cache: Item rejected by admission policy. ID: {}", id);
+                return;
+            }
+            evict(victim, RemovalCause.SIZE);
+        }
+        policy.onAdd(entry);
+        cache.put(id, entry);
+        totalWeight += weight;
+        onInsert(id, value);
+        log.trace("LFU Cache: New item added to cache. ID: {}", id);
+    }
+
+    private T readOffHeap(String id) {
+        OffHeapStore.Location location = offHeap.locate(id);
+        if (location == null) {
+            return null;
+        }
+        if (expireAfterWriteNanos > 0
+                && ticker.getAsLong() - location.writeTime() >= expireAfterWriteNanos) {
+            return null;
+        }
+        byte[] bytes = offHeap.read(location);
+        if (bytes == null) {
+            return null;
+        }
+        T value;
+        try {
+            value = codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            log.warn("LFU Cache: Broken off-heap snapshot. ID: {}, cause: {}", id, e.getMessage());
+            return null;
+        }
+        promote(id, value, location);
+        return value;
+    }
 
-            entry.value = value;
-            entry.frequency++;
+    // Поднимает значение в кучу, если за время чтения ключ никто не перезаписал
+    private void promote(String id, T value, OffHeapStore.Location location) {
+        evictionLock.lock();
+        try {
+            if (cache.containsKey(id) || !offHeap.remove(id, location)) {
+                return;
+            }
+            drainReadBuffer();
+            insert(id, value, null, weigh(id, value), location.writeTime());
+        } finally {
+            unlockEviction();
+        }
+    }
 
-            log.info("🔥 LFU Cache: Item updated in cache. ID: {}, New frequency: {}",
-                    id, entry.frequency);
-        } else {
-            if (cache.size() >= capacity) {
-                evictLeastFrequentlyUsed();
+    // Запоминает вытесненное по размеру значение для уровня вне кучи; вызывается под блокировкой
+    private void demote(String id, T value, long writeTime) {
+        if (offHeap == null || value == null || !codec.supports(value)) {
+            return;
+        }
+        Demotion<T> demotion = new Demotion<>(id, value, writeTime);
+        demoting.put(id, demotion);
+        pendingDemotions.add(demotion);
+    }
+
+    // Снимает блокировку вытеснения и, если она снята целиком, сохраняет вне кучи значения,
+    // вытесненные под ней
+    private void unlockEviction() {
+        List<Demotion<T>> demotions = List.of();
+        if (evictionLock.getHoldCount() == 1 && !pendingDemotions.isEmpty()) {
+            demotions = new ArrayList<>(pendingDemotions);
+            pendingDemotions.clear();
+        }
+        evictionLock.unlock();
+        demotions.forEach(this::writeOffHeap);
+    }
+
+    // Сериализует значение без блокировки; под ней только копируются готовые байты
+    private void writeOffHeap(Demotion<T> demotion) {
+        byte[] bytes = null;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            codec.write(demotion.value(), new DataOutputStream(out));
+            bytes = out.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            log.debug("LFU Cache: Item not moved off heap. ID: {}, cause: {}", demotion.id(),
+                    e.getMessage());
+        }
+        evictionLock.lock();
+        try {
+            if (demoting.remove(demotion.id(), demotion) && bytes != null) {
+                offHeap.write(demotion.id(), bytes, demotion.writeTime());
             }
-            cache.put(id, new Entry<>(value));
-            log.info("🔥 LFU Cache: New item added to cache. ID: {}", id);
+        } finally {
+            evictionLock.unlock();
         }
     }
 
-    private void evictLeastFrequentlyUsed() {
-        String lfuKey = null;
-        int minFrequency = Integer.MAX_VALUE;
+    public int size() {
+        return cache.size();
+    }
 
-        for (Map.Entry<String, Entry<T>> entry : cache.entrySet()) {
-            if (entry.getValue().frequency < minFrequency) {
-                minFrequency = entry.getValue().frequency;
-                lfuKey = entry.getKey();
+    /**
+     * До limit самых часто читаемых ключей, начиная с самого горячего. Под блокировкой
+     * снимаются только частоты, сортировка идёт уже без неё.
+     */
+    public List<String> hottestKeys(int limit) {
+        List<String> keys = new ArrayList<>(cache.size());
+        List<Integer> frequencies = new ArrayList<>(cache.size());
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            for (Entry<T> entry : cache.values()) {
+                keys.add(entry.key);
+                frequencies.add(policy.frequency(entry));
             }
+        } finally {
+            evictionLock.unlock();
+        }
+
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(frequencies.get(b), frequencies.get(a)));
+        List<String> hottest = new ArrayList<>(Math.min(limit, order.length));
+        for (int i = 0; i < order.length && i < limit; i++) {
+            hottest.add(keys.get(order[i]));
         }
+        return hottest;
+    }
+
+    public long weightedSize() {
+        return totalWeight;
+    }
 
-        if (lfuKey != null) {
-            cache.remove(lfuKey);
-            log.info("Evicted item from cache. ID: {},"
-                    + " Frequency at removal: {}", lfuKey, minFrequency);
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    private int weigh(String id, T value) {
+        int weight = weigher.weigh(id, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight " + weight + " for key " + id);
+        }
+        return weight;
+    }
+
+    // Меняет значение существующей записи и вытесняет лишнее, если запись потяжелела
+    private void replaceValue(Entry<T> entry, T value, int weight) {
+        if (weight > maximumWeight) {
+            evict(entry, RemovalCause.SIZE);
+            return;
+        }
+        int delta = weight - entry.weight;
+        entry.value = value;
+        entry.weight = weight;
+        totalWeight += delta;
+        policy.onWeightChanged(entry, delta);
+        while (totalWeight > maximumWeight) {
+            Entry<T> victim = policy.selectVictim(null);
+            if (victim == null) {
+                break;
+            }
+            evict(victim, RemovalCause.SIZE);
+        }
+    }
+
+    private void tryDrainReadBuffer() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        readBuffer.drainTo(this::onAccess);
+    }
+
+    private void onAccess(Entry<T> entry) {
+        // Запись могла быть удалена, пока обращение лежало в буфере
+        if (entry.alive) {
+            policy.onAccess(entry);
+        }
+    }
+
+    private void scheduleRefresh(Entry<T> entry) {
+        if (refreshing.putIfAbsent(entry.key, Boolean.TRUE) != null) {
+            return;
+        }
+        Function<String, T> loader = entry.loader;
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    T value = load(entry.key, loader);
+                    replaceIfCurrent(entry, value);
+                } catch (RuntimeException e) {
+                    log.warn("LFU Cache: Background refresh failed. ID: {}, cause: {}",
+                            entry.key, e.getMessage());
+                } finally {
+                    refreshing.remove(entry.key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(entry.key);
+            log.warn("LFU Cache: Background refresh rejected. ID: {}", entry.key);
         }
     }
 
+    private void replaceIfCurrent(Entry<T> entry, T value) {
+        evictionLock.lock();
+        try {
+            if (!entry.alive || cache.get(entry.key) != entry) {
+                return;
+            }
+            if (value == null) {
+                evict(entry, RemovalCause.EXPLICIT);
+                return;
+            }
+            entry.writeTime = ticker.getAsLong();
+            replaceValue(entry, value, weigh(entry.key, value));
+            log.trace("LFU Cache: Item refreshed in background. ID: {}", entry.key);
+        } finally {
+            unlockEviction();
+        }
+    }
+
+    private void removeExpired(Entry<T> entry) {
+        evictionLock.lock();
+        try {
+            if (entry.alive && cache.get(entry.key) == entry
+                    && ticker.getAsLong() - entry.writeTime >= expireAfterWriteNanos) {
+                evict(entry, RemovalCause.EXPIRED);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private <K, R> R load(K id, Function<K, R> loader) {
+        long start = System.nanoTime();
+        try {
+            R value = loader.apply(id);
+            stats.recordLoadSuccess(System.nanoTime() - start);
+            return value;
+        } catch (RuntimeException | Error e) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private T getIfPresent(String id) {
+        Entry<T> entry = cache.get(id);
+        if (entry == null || expireAfterWriteNanos > 0
+                && ticker.getAsLong() - entry.writeTime >= expireAfterWriteNanos) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    private static <T> T await(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static long toNanos(Duration duration) {
+        return duration == null ? 0 : duration.toNanos();
+    }
+
+    private void evict(Entry<T> victim, RemovalCause cause) {
+        policy.onRemove(victim);
+        victim.alive = false;
+        totalWeight -= victim.weight;
+        cache.remove(victim.key, victim);
+        stats.recordEviction(cause, 1);
+        onRemoval(victim.key, victim.value, cause);
+        if (cause == RemovalCause.SIZE) {
+            demote(victim.key, victim.value, victim.writeTime);
+        }
+        log.trace("Evicted item from cache. ID: {}, cause: {}", victim.key, cause);
+    }
+
+    /**
+     * Вызывается под блокировкой вытеснения, когда в кэш добавлена новая запись.
+     */
+    protected void onInsert(String key, T value) {
+    }
+
+    /**
+     * Вызывается под блокировкой вытеснения для каждой записи, покинувшей кэш или не принятой в него.
+     * Наследники держат здесь в согласии свои вспомогательные структуры; долгих операций делать нельзя.
+     */
+    protected void onRemoval(String key, T value, RemovalCause cause) {
+    }
+
     public void remove(String id) {
-        if (cache.remove(id) != null) {
-            log.info("Item successfully removed from cache. ID: {}", id);
+        evictionLock.lock();
+        try {
+            inFlight.remove(id);
+            invalidations++;
+            if (offHeap != null) {
+                offHeap.remove(id);
+                demoting.remove(id);
+            }
+            Entry<T> entry = cache.remove(id);
+            if (entry != null) {
+                policy.onRemove(entry);
+                entry.alive = false;
+                totalWeight -= entry.weight;
+                stats.recordEviction(RemovalCause.EXPLICIT, 1);
+                onRemoval(id, entry.value, RemovalCause.EXPLICIT);
+                log.trace("Item successfully removed from cache. ID: {}", id);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Отменяет для кэша идущие загрузки ключей, подходящих под keys: ожидающие получат
+     * их результат, но в кэш он не попадёт. Нужна наследникам, которые инвалидируют
+     * ключи по признаку, — незагруженного ещё ключа среди записей нет.
+     */
+    protected void discardLoads(Predicate<String> keys) {
+        evictionLock.lock();
+        try {
+            inFlight.keySet().removeIf(keys);
+            invalidations++;
+        } finally {
+            evictionLock.unlock();
         }
     }
 
     public void clear() {
-        cache.clear();
-        log.info("All items have been successfully cleared from the cache.");
+        evictionLock.lock();
+        try {
+            inFlight.clear();
+            invalidations++;
+            drainReadBuffer();
+            for (Entry<T> entry : cache.values()) {
+                entry.alive = false;
+                onRemoval(entry.key, entry.value, RemovalCause.EXPLICIT);
+            }
+            stats.recordEviction(RemovalCause.EXPLICIT, cache.size());
+            cache.clear();
+            policy.clear();
+            if (offHeap != null) {
+                offHeap.clear();
+                demoting.clear();
+            }
+            totalWeight = 0;
+            log.info("All items have been successfully cleared from the cache.");
+        } finally {
+            evictionLock.unlock();
+        }
     }
 }
@@ -3,11 +3,19 @@ package com.example.hotelbookingv2.cache;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Кэш списков: вес записи равен числу элементов списка, так что один список
+ * из тысяч отелей занимает столько же места в лимите, сколько тысячи маленьких.
+ */
 @Slf4j
 public class LfuCacheList<T> extends LfuCacheBase<List<T>> {
 
-    public LfuCacheList(int capacity) {
-        super(capacity);
+    public LfuCacheList(long maximumWeight) {
+        this(maximumWeight, CachePolicy.LFU);
+    }
+
+    public LfuCacheList(long maximumWeight, CachePolicy policy) {
+        super(maximumWeight, policy, (key, list) -> Math.max(1, list.size()));
     }
 
 }
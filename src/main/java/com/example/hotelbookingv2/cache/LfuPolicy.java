@@ -0,0 +1,101 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.LinkedHashSet;
+
+/**
+ * LFU с корзинами частот: каждая запись лежит в корзине своего числа обращений,
+ * корзины связаны по возрастанию частоты, поэтому все операции выполняются за O(1).
+ */
+final class LfuPolicy<T> implements EvictionPolicy<T> {
+
+    // Корзины частот упорядочены по возрастанию; первая непустая — кандидат на вытеснение
+    private final Bucket<T> head = new Bucket<>(0);
+
+    LfuPolicy() {
+        head.prev = head;
+        head.next = head;
+    }
+
+    @Override
+    public void onAdd(LfuCacheBase.Entry<T> entry) {
+        entry.frequency = 1;
+        addToBucket(entry, head);
+    }
+
+    @Override
+    public void onAccess(LfuCacheBase.Entry<T> entry) {
+        Bucket<T> current = entry.bucket;
+        entry.frequency++;
+        current.entries.remove(entry);
+        addToBucket(entry, current);
+        if (current.entries.isEmpty()) {
+            removeBucket(current);
+        }
+    }
+
+    @Override
+    public void onRemove(LfuCacheBase.Entry<T> entry) {
+        Bucket<T> bucket = entry.bucket;
+        bucket.entries.remove(entry);
+        if (bucket.entries.isEmpty()) {
+            removeBucket(bucket);
+        }
+        entry.bucket = null;
+    }
+
+    @Override
+    public void onWeightChanged(LfuCacheBase.Entry<T> entry, int delta) {
+        // Порядок LFU от веса не зависит
+    }
+
+    @Override
+    public LfuCacheBase.Entry<T> selectVictim(LfuCacheBase.Entry<T> candidate) {
+        Bucket<T> lowest = head.next;
+        if (lowest == head) {
+            return candidate;
+        }
+        // Среди записей с одинаковой частотой вытесняется самая давняя
+        return lowest.entries.iterator().next();
+    }
+
+    @Override
+    public int frequency(LfuCacheBase.Entry<T> entry) {
+        return entry.frequency;
+    }
+
+    @Override
+    public void clear() {
+        head.prev = head;
+        head.next = head;
+    }
+
+    // Помещает запись в корзину её частоты, которая может идти только сразу после after
+    private void addToBucket(LfuCacheBase.Entry<T> entry, Bucket<T> after) {
+        Bucket<T> target = after.next;
+        if (target == head || target.frequency != entry.frequency) {
+            target = new Bucket<>(entry.frequency);
+            target.prev = after;
+            target.next = after.next;
+            after.next.prev = target;
+            after.next = target;
+        }
+        target.entries.add(entry);
+        entry.bucket = target;
+    }
+
+    private void removeBucket(Bucket<T> bucket) {
+        bucket.prev.next = bucket.next;
+        bucket.next.prev = bucket.prev;
+    }
+
+    static final class Bucket<T> {
+        final int frequency;
+        final LinkedHashSet<LfuCacheBase.Entry<T>> entries = new LinkedHashSet<>();
+        Bucket<T> prev;
+        Bucket<T> next;
+
+        Bucket(int frequency) {
+            this.frequency = frequency;
+        }
+    }
+}
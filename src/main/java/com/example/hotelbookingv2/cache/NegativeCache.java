@@ -0,0 +1,46 @@
+package com.example.hotelbookingv2.cache;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Кэш отрицательных ответов: id, по которым база ничего не нашла. Повторный запрос
+ * несуществующего id отвечает 404 без похода в PostgreSQL. Записи живут недолго и
+ * ограничены по числу. W-TinyLFU принимает каждый новый id в небольшое окно, но в основную
+ * часть кэша пускает только те, что запрашивались чаще вытесняемых: одноразовые id от
+ * перебора проходят через окно и не вытесняют часто запрашиваемые.
+ */
+@Component
+public class NegativeCache extends LfuCache<Boolean> {
+
+    public enum Kind { HOTEL, ROOM }
+
+    public NegativeCache(@Value("${cache.negative.maximum-weight:10000}") long maximumWeight,
+                         @Value("${cache.negative.policy:W_TINY_LFU}") CachePolicy policy,
+                         @Value("${cache.negative.expire-after-write:30s}") Duration expireAfterWrite) {
+        super(maximumWeight, policy, Weigher.singleton());
+        setExpireAfterWrite(expireAfterWrite);
+    }
+
+    public boolean isMissing(Kind kind, String id) {
+        return get(key(kind, id)) != null;
+    }
+
+    public void markMissing(Kind kind, String id) {
+        put(key(kind, id), Boolean.TRUE);
+    }
+
+    /**
+     * Снимает отметку после создания сущности с этим id.
+     */
+    public void invalidate(Kind kind, String id) {
+        if (id != null) {
+            remove(key(kind, id));
+        }
+    }
+
+    private static String key(Kind kind, String id) {
+        return kind + ":" + id;
+    }
+}
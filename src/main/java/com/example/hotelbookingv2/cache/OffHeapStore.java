@@ -0,0 +1,128 @@
+package com.example.hotelbookingv2.cache;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Второй уровень кэша вне кучи: сериализованные значения пишутся подряд в кольцо прямых
+ * {@link ByteBuffer}-слабов, а в куче остаётся только индекс ключ → положение.
+ * Когда кольцо заполнено, самый старый слаб переиспользуется целиком вместе со всеми его
+ * ключами, так что уровень вытесняет записи в порядке FIFO и не фрагментируется.
+ *
+ * <p>Запись, удаление и очистка выполняются только под блокировкой вытеснения кэша-владельца.
+ * Чтение идёт без блокировок: у каждого слаба есть поколение, и если слаб переписали,
+ * пока из него копировались байты, чтение считается промахом.
+ */
+final class OffHeapStore {
+
+    private static final int MAX_SLAB_SIZE = 1 << 20;
+    private static final int MIN_SLAB_SIZE = 4 << 10;
+
+    private final int slabSize;
+    private final Slab[] slabs;
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+    private int current;
+    private int position;
+
+    record Location(int slab, int generation, int offset, int length, long writeTime) {
+    }
+
+    private static final class Slab {
+        ByteBuffer buffer;
+        volatile int generation;
+        final List<String> keys = new ArrayList<>();
+    }
+
+    OffHeapStore(long capacityBytes) {
+        slabSize = (int) Math.max(MIN_SLAB_SIZE, Math.min(MAX_SLAB_SIZE, capacityBytes / 8));
+        int count = (int) Math.max(2, capacityBytes / slabSize);
+        slabs = new Slab[count];
+        for (int i = 0; i < count; i++) {
+            slabs[i] = new Slab();
+        }
+    }
+
+    Location locate(String key) {
+        return index.get(key);
+    }
+
+    /**
+     * Копирует байты записи в кучу; {@code null}, если слаб успели переиспользовать.
+     */
+    byte[] read(Location location) {
+        Slab slab = slabs[location.slab()];
+        if (slab.generation != location.generation()) {
+            return null;
+        }
+        byte[] bytes = new byte[location.length()];
+        slab.buffer.get(location.offset(), bytes);
+        // Байты прочитаны раньше повторной проверки поколения
+        VarHandle.loadLoadFence();
+        return slab.generation == location.generation() ? bytes : null;
+    }
+
+    /**
+     * Сохраняет значение; слишком большое для одного слаба не сохраняется.
+     */
+    boolean write(String key, byte[] bytes, long writeTime) {
+        if (bytes.length > slabSize) {
+            return false;
+        }
+        if (slabs[current].buffer == null) {
+            slabs[current].buffer = ByteBuffer.allocateDirect(slabSize);
+        }
+        if (position + bytes.length > slabSize) {
+            advance();
+        }
+        Slab slab = slabs[current];
+        slab.buffer.put(position, bytes);
+        slab.keys.add(key);
+        index.put(key, new Location(current, slab.generation, position, bytes.length, writeTime));
+        position += bytes.length;
+        return true;
+    }
+
+    boolean remove(String key, Location location) {
+        return index.remove(key, location);
+    }
+
+    void remove(String key) {
+        index.remove(key);
+    }
+
+    void clear() {
+        index.clear();
+        for (Slab slab : slabs) {
+            slab.generation++;
+            slab.keys.clear();
+        }
+        VarHandle.storeStoreFence();
+        position = 0;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    private void advance() {
+        current = (current + 1) % slabs.length;
+        position = 0;
+        Slab slab = slabs[current];
+        if (slab.buffer == null) {
+            slab.buffer = ByteBuffer.allocateDirect(slabSize);
+        }
+        int slabIndex = current;
+        int previous = slab.generation;
+        slab.generation = previous + 1;
+        // Новое поколение должно стать видно читателям раньше новых байтов
+        VarHandle.storeStoreFence();
+        for (String key : slab.keys) {
+            index.computeIfPresent(key, (k, location) -> location.slab() == slabIndex
+                    && location.generation() == previous ? null : location);
+        }
+        slab.keys.clear();
+    }
+}
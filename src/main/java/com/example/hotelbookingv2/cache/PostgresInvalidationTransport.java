@@ -0,0 +1,185 @@
+package com.example.hotelbookingv2.cache;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Канал поверх LISTEN/NOTIFY в PostgreSQL. Отдельный поток держит соединение с LISTEN
+ * и забирает уведомления; при обрыве он переподключается и сообщает о возможном пропуске,
+ * потому что уведомления, пришедшие без слушателя, PostgreSQL не хранит.
+ * Слушает собственное соединение в обход пула: соединение с LISTEN, вернувшееся в пул,
+ * копило бы уведомления, которые никто не читает, и занимало бы место для запросов.
+ * Неудавшаяся отправка повторяется; если сообщение так и не ушло, поток слушателя
+ * при первой возможности рассылает пустое сообщение, и все узлы сбрасывают кэши
+ * как после пропуска.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport {
+
+    static final String CHANNEL = "cache_invalidation";
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+    private static final int PUBLISH_ATTEMPTS = 3;
+    private static final long PUBLISH_RETRY_DELAY_MILLIS = 100;
+    // Пустое сообщение узел-отправитель шлёт вместо потерянных: у обычных есть id узла
+    static final String GAP = "";
+
+    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private volatile boolean running = true;
+    // Сообщение не ушло ни с одной попытки: о пропуске нужно сообщить всем узлам
+    private final AtomicBoolean publishLost = new AtomicBoolean();
+    private Thread listenerThread;
+
+    public PostgresInvalidationTransport(DataSource dataSource,
+                                         DataSourceProperties dataSourceProperties) {
+        this.dataSource = dataSource;
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    @Override
+    public void publish(String payload) {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection connection = dataSource.getConnection()) {
+                sendNotification(connection, payload);
+                return;
+            } catch (SQLException e) {
+                if (attempt == PUBLISH_ATTEMPTS || !pauseBeforeRetry(attempt)) {
+                    log.warn("Cache invalidation not published, peers will clear their caches: {}",
+                            e.getMessage());
+                    publishLost.set(true);
+                    return;
+                }
+                log.debug("Cache invalidation publish attempt {} failed: {}", attempt,
+                        e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> listener, Runnable onGap) {
+        if (listenerThread != null) {
+            throw new IllegalStateException("Канал инвалидации уже слушается");
+        }
+        listenerThread = new Thread(() -> listen(listener, onGap), "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    private void listen(Consumer<String> listener, Runnable onGap) {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                if (connectedBefore) {
+                    onGap.run();
+                }
+                connectedBefore = true;
+                log.info("Listening for cache invalidations on channel {}", CHANNEL);
+                while (running) {
+                    if (publishLost.compareAndSet(true, false)) {
+                        announceGap(connection);
+                    }
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        if (GAP.equals(notification.getParameter())) {
+                            onGap.run();
+                        } else {
+                            deliver(listener, notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener lost its connection: {}", e.getMessage());
+                // Пока слушателя нет, уведомления теряются
+                connectedBefore = true;
+                sleepBeforeReconnect();
+            }
+        }
+    }
+
+    private void announceGap(Connection connection) throws SQLException {
+        try {
+            sendNotification(connection, GAP);
+            log.info("Announced lost cache invalidations on channel {}", CHANNEL);
+        } catch (SQLException e) {
+            publishLost.set(true);
+            throw e;
+        }
+    }
+
+    private static void sendNotification(Connection connection, String payload)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, payload);
+            statement.execute();
+        }
+    }
+
+    private static boolean pauseBeforeRetry(int attempt) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(PUBLISH_RETRY_DELAY_MILLIS * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void deliver(Consumer<String> listener, String payload) {
+        try {
+            listener.accept(payload);
+        } catch (RuntimeException e) {
+            log.warn("Cache invalidation message not applied: {}", e.getMessage());
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = listenerThread;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Обратный индекс от атрибутов отеля к ключам закэшированных выборок.
+ * Выборка с фильтром по городу попадает в корзину города, выборка только по категории —
+ * в корзину категории, выборка без фильтров — в отдельное множество. Изменённый отель
+ * затрагивает не больше трёх корзин, поэтому инвалидация не перебирает весь кэш.
+ */
+final class QueryKeyIndex {
+
+    private final Map<String, Filter> filters = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byCity = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byCategory = new ConcurrentHashMap<>();
+    private final Set<String> unfiltered = ConcurrentHashMap.newKeySet();
+
+    void register(String key, String city, String category) {
+        Filter filter = new Filter(city, category);
+        if (filter.equals(filters.put(key, filter))) {
+            return;
+        }
+        bucket(filter, true).add(key);
+    }
+
+    void unregister(String key) {
+        Filter filter = filters.remove(key);
+        if (filter == null) {
+            return;
+        }
+        Set<String> keys = bucket(filter, false);
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * Ключи выборок, в результат которых входит (или должен войти) отель с такими атрибутами.
+     */
+    Set<String> affectedKeys(String city, String category) {
+        Set<String> affected = new HashSet<>(unfiltered);
+        if (city != null) {
+            for (String key : byCity.getOrDefault(city, Set.of())) {
+                Filter filter = filters.get(key);
+                if (filter != null && (filter.category() == null
+                        || filter.category().equals(category))) {
+                    affected.add(key);
+                }
+            }
+        }
+        if (category != null) {
+            affected.addAll(byCategory.getOrDefault(category, Set.of()));
+        }
+        return affected;
+    }
+
+    void clear() {
+        filters.clear();
+        byCity.clear();
+        byCategory.clear();
+        unfiltered.clear();
+    }
+
+    private Set<String> bucket(Filter filter, boolean create) {
+        if (filter.city() != null) {
+            return create ? byCity.computeIfAbsent(filter.city(), c -> ConcurrentHashMap.newKeySet())
+                    : byCity.get(filter.city());
+        }
+        if (filter.category() != null) {
+            return create ? byCategory.computeIfAbsent(filter.category(),
+                    c -> ConcurrentHashMap.newKeySet()) : byCategory.get(filter.category());
+        }
+        return unfiltered;
+    }
+
+    private record Filter(String city, String category) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Полосатый буфер обращений к кэшу. Читающие потоки пишут в свою полосу без блокировок,
+ * а вытеснение периодически переносит накопленные обращения в частотную структуру.
+ * При переполнении полосы новые обращения отбрасываются — частота остаётся приближённой,
+ * но чтение никогда не ждёт писателя.
+ */
+final class ReadBuffer<E> {
+
+    private static final int BUFFER_SIZE = 16;
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        stripeMask = count - 1;
+    }
+
+    /**
+     * Записывает обращение. Возвращает {@code true}, если полоса заполнена и её пора слить.
+     */
+    boolean offer(E element) {
+        Stripe<E> stripe = stripes[stripeIndex()];
+        long head = stripe.readCounter;
+        long tail = stripe.writeCounter.get();
+        long size = tail - head;
+        if (size >= BUFFER_SIZE) {
+            return true;
+        }
+        if (stripe.writeCounter.compareAndSet(tail, tail + 1)) {
+            stripe.buffer.lazySet((int) (tail & BUFFER_MASK), element);
+            return size + 1 >= BUFFER_SIZE;
+        }
+        return false;
+    }
+
+    /**
+     * Сливает все полосы в consumer. Вызывается только под блокировкой вытеснения.
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            long head = stripe.readCounter;
+            long tail = stripe.writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & BUFFER_MASK);
+                E element = stripe.buffer.get(index);
+                if (element == null) {
+                    break;
+                }
+                stripe.buffer.lazySet(index, null);
+                consumer.accept(element);
+            }
+            stripe.readCounter = head;
+        }
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+
+    private static final class Stripe<E> {
+        final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+        final AtomicLong writeCounter = new AtomicLong();
+        volatile long readCounter;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.hotelbookingv2.cache;
+
+public enum RemovalCause {
+
+    /**
+     * Запись удалена явно: remove, clear или загрузчик больше не находит значение.
+     */
+    EXPLICIT,
+
+    /**
+     * Запись вытеснена или не допущена из-за ограничения по весу.
+     */
+    SIZE,
+
+    /**
+     * Истёк срок жизни записи.
+     */
+    EXPIRED
+}
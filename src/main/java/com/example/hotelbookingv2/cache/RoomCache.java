@@ -1,11 +1,16 @@
 package com.example.hotelbookingv2.cache;
 
-import com.example.hotelbookingv2.model.Room;
+import com.example.hotelbookingv2.view.RoomView;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 @Component
-public class RoomCache extends LfuCache<Room> {
-    public RoomCache() {
-        super(3);
+public class RoomCache extends LfuCache<RoomView> {
+    public RoomCache(@Value("${cache.room.maximum-weight:10000}") long maximumWeight,
+                     @Value("${cache.room.policy:W_TINY_LFU}") CachePolicy policy,
+                     @Value("${cache.room.off-heap:0}") DataSize offHeap) {
+        super(maximumWeight, policy, Weigher.singleton());
+        enableOffHeapTier(offHeap.toBytes(), new RoomSnapshotCodec());
     }
 }
@@ -0,0 +1,270 @@
+package com.example.hotelbookingv2.cache;
+
+import com.example.hotelbookingv2.view.RoomFacilityEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Инвертированный индекс номеров по удобствам: каждому удобству соответствует сжатая
+ * битовая карта порядковых номеров комнат. Поиск «все удобства сразу» — пересечение карт,
+ * начиная с самой маленькой, «хотя бы одно» — их объединение; страница результата
+ * читается итератором с позиции курсора, так что дальние страницы не дороже первой.
+ * Индекс строится одним запросом при первом поиске. Добавление и снятие удобства правят
+ * карты точечно, а остальные записи номеров — здесь и на других узлах — помечают номер
+ * устаревшим, и ближайший поиск перечитывает такие номера одним запросом.
+ * Порядковый номер комнаты не меняется и не переиспользуется до перестроения индекса,
+ * поэтому курсор остаётся верным после точечных изменений: новые номера идут в конец,
+ * а изменённый не перескакивает через курсор. Изменения внутри транзакции вступают
+ * в силу после коммита.
+ */
+@Slf4j
+@Component
+public class RoomFacilityIndex {
+
+    public enum Match { ALL, ANY }
+
+    /**
+     * id номеров страницы по порядку индекса и ключ курсора следующей; null — страница
+     * последняя.
+     */
+    public record Page(List<String> roomIds, String lastKey) {
+    }
+
+    private final LazyIndex<Index> index = new LazyIndex<>();
+    // Номер построения входит в курсор: после перестроения порядковые номера другие
+    private final AtomicLong generations = new AtomicLong();
+    private final Set<String> staleRooms = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Страница номеров с удобствами facilityIds после ключа after (null — с начала).
+     * При первом обращении индекс строится по all, устаревшие номера перечитываются
+     * по byRooms. Ключ от другого построения индекса —
+     * {@link IllegalArgumentException}.
+     */
+    public Page find(Collection<String> facilityIds, Match match, String after, int limit,
+            Supplier<? extends Collection<RoomFacilityEntry>> all,
+            Function<Collection<String>, ? extends Collection<RoomFacilityEntry>> byRooms) {
+        Index current = load(all);
+        refreshStale(current, byRooms);
+        return current.find(facilityIds, match, current.position(after), limit);
+    }
+
+    public void add(String roomId, String facilityId) {
+        AfterCommit.run(() -> index.modify(current -> current.add(roomId, facilityId)));
+    }
+
+    public void remove(String roomId, String facilityId) {
+        AfterCommit.run(() -> index.modify(current -> current.remove(roomId, facilityId)));
+    }
+
+    /**
+     * Номер изменился или удалён: его удобства перечитаются при ближайшем поиске.
+     */
+    public void invalidateRoom(String roomId) {
+        AfterCommit.run(() -> index.modify(current -> staleRooms.add(roomId)));
+    }
+
+    public void removeFacility(String facilityId) {
+        AfterCommit.run(() -> index.modify(current -> current.removeFacility(facilityId)));
+    }
+
+    /**
+     * Сбрасывает индекс; следующий поиск построит его заново.
+     */
+    public void clear() {
+        index.clear();
+        staleRooms.clear();
+    }
+
+    public int size() {
+        Index current = index.peek();
+        return current == null ? 0 : current.size();
+    }
+
+    private Index load(Supplier<? extends Collection<RoomFacilityEntry>> all) {
+        return index.get(() -> {
+            Index loaded = new Index(generations.incrementAndGet());
+            all.get().forEach(entry -> loaded.add(entry.roomId(), entry.facilityId()));
+            loaded.optimize();
+            return loaded;
+        }, loaded -> log.info("Room facility index built: {} rooms", loaded.size()));
+    }
+
+    private void refreshStale(Index current,
+            Function<Collection<String>, ? extends Collection<RoomFacilityEntry>> byRooms) {
+        if (staleRooms.isEmpty()) {
+            return;
+        }
+        long seen = index.modifications();
+        List<String> rooms = new ArrayList<>();
+        for (String roomId : staleRooms) {
+            if (staleRooms.remove(roomId)) {
+                rooms.add(roomId);
+            }
+        }
+        if (rooms.isEmpty()) {
+            return;
+        }
+        current.replaceRooms(rooms, byRooms.apply(rooms));
+        // Пока строки читались, номер могли изменить и перечитать другим поиском, а это
+        // чтение, более старое, легло поверх: номера снова помечаются устаревшими
+        if (index.modifications() != seen) {
+            staleRooms.addAll(rooms);
+        }
+    }
+
+    private static final class Index {
+
+        private final long generation;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // Номер, которого больше нет ни в одной карте, сохраняет порядковый номер:
+        // вернувшись, он не окажется позади курсора, который его уже прошёл
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final Map<String, RoaringBitmap> byFacility = new HashMap<>();
+
+        Index(long generation) {
+            this.generation = generation;
+        }
+
+        // Ключ курсора: номер построения и порядковый номер последнего номера страницы
+        int position(String after) {
+            if (after == null) {
+                return -1;
+            }
+            String[] parts = after.split(":", 2);
+            try {
+                if (parts.length == 2 && Long.parseLong(parts[0]) == generation) {
+                    return Integer.parseInt(parts[1]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed index position: " + after, e);
+            }
+            throw new IllegalArgumentException("Index position from another build: " + after);
+        }
+
+        Page find(Collection<String> facilityIds, Match match, int after, int limit) {
+            lock.readLock().lock();
+            try {
+                List<RoaringBitmap> matching = new ArrayList<>(facilityIds.size());
+                for (String facilityId : facilityIds) {
+                    RoaringBitmap bitmap = byFacility.get(facilityId);
+                    if (bitmap != null) {
+                        matching.add(bitmap);
+                    } else if (match == Match.ALL) {
+                        return new Page(List.of(), null);
+                    }
+                }
+                if (matching.isEmpty()) {
+                    return new Page(List.of(), null);
+                }
+                RoaringBitmap result = match == Match.ALL ? Bitmaps.intersect(matching)
+                        : FastAggregation.or(matching.iterator());
+                PeekableIntIterator iterator = result.getIntIterator();
+                iterator.advanceIfNeeded(after + 1);
+                List<String> page = new ArrayList<>(limit);
+                int last = -1;
+                while (iterator.hasNext() && page.size() < limit) {
+                    last = iterator.next();
+                    page.add(ids.get(last));
+                }
+                return new Page(page, iterator.hasNext() ? generation + ":" + last : null);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void add(String roomId, String facilityId) {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.computeIfAbsent(roomId, id -> {
+                    ids.add(id);
+                    return ids.size() - 1;
+                });
+                byFacility.computeIfAbsent(facilityId, id -> new RoaringBitmap()).add(ordinal);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String roomId, String facilityId) {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.get(roomId);
+                RoaringBitmap bitmap = byFacility.get(facilityId);
+                if (ordinal == null || bitmap == null) {
+                    return;
+                }
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    byFacility.remove(facilityId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void replaceRooms(Collection<String> roomIds, Collection<RoomFacilityEntry> entries) {
+            lock.writeLock().lock();
+            try {
+                for (String roomId : roomIds) {
+                    Integer ordinal = ordinals.get(roomId);
+                    if (ordinal != null) {
+                        byFacility.values().removeIf(bitmap -> {
+                            bitmap.remove(ordinal);
+                            return bitmap.isEmpty();
+                        });
+                    }
+                }
+                // Под той же блокировкой: поиск не увидит номер без его удобств
+                entries.forEach(entry -> add(entry.roomId(), entry.facilityId()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeFacility(String facilityId) {
+            lock.writeLock().lock();
+            try {
+                byFacility.remove(facilityId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Номера хотя бы с одним удобством
+        int size() {
+            lock.readLock().lock();
+            try {
+                return byFacility.isEmpty() ? 0
+                        : FastAggregation.or(byFacility.values().iterator()).getCardinality();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void optimize() {
+            lock.writeLock().lock();
+            try {
+                byFacility.values().forEach(RoaringBitmap::runOptimize);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
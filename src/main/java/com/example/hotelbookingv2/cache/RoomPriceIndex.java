@@ -0,0 +1,392 @@
+package com.example.hotelbookingv2.cache;
+
+import com.example.hotelbookingv2.view.RoomPriceEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Индекс номеров по цене: для каждого типа номера — массивы примитивов, отсортированные
+ * по цене, а при равной цене по id, и параллельные им массивы id и кодов городов.
+ * Диапазон цен находится двоичным поиском, город сверяется сравнением int, а выдача по
+ * всем типам сливается из их массивов на ходу, так что самые дешёвые номера идут первыми
+ * без сортировки на каждый запрос. Индекс строится одним запросом при первом поиске.
+ * Записи номеров и отелей — здесь и на других узлах — помечают их устаревшими, и
+ * ближайший поиск перечитывает только их и пересобирает массивы затронутых типов.
+ * Изменения внутри транзакции вступают в силу после коммита.
+ */
+@Slf4j
+@Component
+public class RoomPriceIndex {
+
+    /**
+     * Условия поиска; null в типе или городе означает «любой».
+     */
+    public record Filter(String type, String city, double minPrice, double maxPrice) {
+    }
+
+    /**
+     * id номеров страницы по возрастанию цены и ключ курсора следующей; null — страница
+     * последняя.
+     */
+    public record Page(List<String> roomIds, String lastKey) {
+    }
+
+    private static final Prices EMPTY = new Prices(new double[0], new String[0], new int[0]);
+
+    private final LazyIndex<Index> index = new LazyIndex<>();
+    private final Set<String> staleRooms = ConcurrentHashMap.newKeySet();
+    private final Set<String> staleHotels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Страница номеров под фильтр после ключа after (null — с начала), дешёвые первыми.
+     * При первом обращении индекс строится по all, устаревшие номера и отели
+     * перечитываются по byRooms и byHotels. Некорректный ключ —
+     * {@link IllegalArgumentException}.
+     */
+    public Page find(Filter filter, String after, int limit,
+            Supplier<? extends Collection<RoomPriceEntry>> all,
+            Function<Collection<String>, ? extends Collection<RoomPriceEntry>> byRooms,
+            Function<Collection<String>, ? extends Collection<RoomPriceEntry>> byHotels) {
+        double afterPrice = Double.NEGATIVE_INFINITY;
+        String afterId = null;
+        if (after != null) {
+            // Ключ: цена и id последнего номера страницы; id из UUID двоеточий не содержит
+            int separator = after.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed price position: " + after);
+            }
+            afterPrice = Double.parseDouble(after.substring(0, separator));
+            afterId = after.substring(separator + 1);
+        }
+        Index current = load(all);
+        refreshStale(current, byRooms, byHotels);
+        return current.find(filter, afterPrice, afterId, limit);
+    }
+
+    /**
+     * Номер изменился или удалён: его строка перечитается при ближайшем поиске.
+     */
+    public void invalidateRoom(String roomId) {
+        AfterCommit.run(() -> index.modify(current -> staleRooms.add(roomId)));
+    }
+
+    /**
+     * Отель изменился или удалён: город и состав его номеров перечитаются при ближайшем
+     * поиске.
+     */
+    public void invalidateHotel(String hotelId) {
+        AfterCommit.run(() -> index.modify(current -> staleHotels.add(hotelId)));
+    }
+
+    /**
+     * Сбрасывает индекс; следующий поиск построит его заново.
+     */
+    public void clear() {
+        index.clear();
+        staleRooms.clear();
+        staleHotels.clear();
+    }
+
+    public int size() {
+        Index current = index.peek();
+        return current == null ? 0 : current.size();
+    }
+
+    private Index load(Supplier<? extends Collection<RoomPriceEntry>> all) {
+        return index.get(() -> {
+            Index loaded = new Index();
+            loaded.replace(Set.of(), Set.of(), all.get());
+            return loaded;
+        }, loaded -> log.info("Room price index built: {} rooms", loaded.size()));
+    }
+
+    private void refreshStale(Index current,
+            Function<Collection<String>, ? extends Collection<RoomPriceEntry>> byRooms,
+            Function<Collection<String>, ? extends Collection<RoomPriceEntry>> byHotels) {
+        long seen = index.modifications();
+        Set<String> rooms = drain(staleRooms);
+        Set<String> hotels = drain(staleHotels);
+        if (rooms.isEmpty() && hotels.isEmpty()) {
+            return;
+        }
+        List<RoomPriceEntry> entries = new ArrayList<>();
+        if (!rooms.isEmpty()) {
+            entries.addAll(byRooms.apply(rooms));
+        }
+        if (!hotels.isEmpty()) {
+            entries.addAll(byHotels.apply(hotels));
+        }
+        current.replace(rooms, hotels, entries);
+        // Пока строки читались, номер или отель могли изменить и перечитать другим поиском,
+        // а это чтение, более старое, легло поверх: они снова помечаются устаревшими
+        if (index.modifications() != seen) {
+            staleRooms.addAll(rooms);
+            staleHotels.addAll(hotels);
+        }
+    }
+
+    private static Set<String> drain(Set<String> stale) {
+        Set<String> drained = new HashSet<>();
+        for (String id : stale) {
+            if (stale.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+
+    // При равной цене порядок задаёт id: ключ курсора однозначен
+    private static int compare(double price, String id, double otherPrice, String otherId) {
+        int byPrice = Double.compare(price, otherPrice);
+        if (byPrice != 0) {
+            return byPrice;
+        }
+        if (id == null || otherId == null) {
+            // id null — граница перед всеми номерами с этой ценой
+            return id == null ? (otherId == null ? 0 : -1) : 1;
+        }
+        return id.compareTo(otherId);
+    }
+
+    private record Placement(String type, String hotelId, double price) {
+    }
+
+    private record Row(String roomId, double price, int city) {
+    }
+
+    private record Prices(double[] prices, String[] roomIds, int[] cities) {
+
+        int size() {
+            return prices.length;
+        }
+
+        // Первая позиция строго после (price, id)
+        int after(double price, String id) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(prices[middle], roomIds[middle], price, id) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Первая позиция не раньше from с ценой не выше max и нужным городом; size() — нет
+        int next(int from, int city, double max) {
+            int position = from;
+            while (position < prices.length && prices[position] <= max) {
+                if (city < 0 || cities[position] == city) {
+                    return position;
+                }
+                position++;
+            }
+            return prices.length;
+        }
+
+        /**
+         * Новые массивы: строки без позиций removed (по возрастанию) и с отсортированными
+         * строками added. Нетронутые участки между ними копируются целиком.
+         */
+        Prices merge(int[] removed, List<Row> added) {
+            int capacity = prices.length - removed.length + added.size();
+            Prices merged = new Prices(new double[capacity], new String[capacity],
+                    new int[capacity]);
+            int[] cursor = {0, 0, 0}; // откуда копировать, следующая удаляемая, куда писать
+            for (Row row : added) {
+                copyTo(merged, after(row.price(), row.roomId()), removed, cursor);
+                merged.prices[cursor[2]] = row.price();
+                merged.roomIds[cursor[2]] = row.roomId();
+                merged.cities[cursor[2]++] = row.city();
+            }
+            copyTo(merged, prices.length, removed, cursor);
+            return merged;
+        }
+
+        private void copyTo(Prices merged, int to, int[] removed, int[] cursor) {
+            while (cursor[0] < to) {
+                int stop = cursor[1] < removed.length && removed[cursor[1]] < to
+                        ? removed[cursor[1]] : to;
+                int length = stop - cursor[0];
+                System.arraycopy(prices, cursor[0], merged.prices, cursor[2], length);
+                System.arraycopy(roomIds, cursor[0], merged.roomIds, cursor[2], length);
+                System.arraycopy(cities, cursor[0], merged.cities, cursor[2], length);
+                cursor[2] += length;
+                if (stop < to) {
+                    cursor[0] = stop + 1;
+                    cursor[1]++;
+                } else {
+                    cursor[0] = to;
+                }
+            }
+        }
+
+        // Позиция строки по её цене и id; -1, если строки нет
+        int positionOf(double price, String id) {
+            int position = after(price, id) - 1;
+            return position >= 0 && roomIds[position].equals(id) ? position : -1;
+        }
+    }
+
+    private static final class Index {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Integer> cityCodes = new HashMap<>();
+        private final Map<String, Placement> placements = new HashMap<>();
+        private final Map<String, Set<String>> roomsByHotel = new HashMap<>();
+        private final Map<String, Prices> byType = new HashMap<>();
+
+        Page find(Filter filter, double afterPrice, String afterId, int limit) {
+            lock.readLock().lock();
+            try {
+                int city = -1;
+                if (filter.city() != null) {
+                    Integer code = cityCodes.get(filter.city());
+                    if (code == null) {
+                        return new Page(List.of(), null);
+                    }
+                    city = code;
+                }
+                List<Prices> sources = new ArrayList<>();
+                if (filter.type() == null) {
+                    sources.addAll(byType.values());
+                } else if (byType.containsKey(filter.type())) {
+                    sources.add(byType.get(filter.type()));
+                }
+                int[] positions = new int[sources.size()];
+                for (int s = 0; s < positions.length; s++) {
+                    Prices prices = sources.get(s);
+                    int start = prices.after(filter.minPrice(), null);
+                    if (afterId != null) {
+                        start = Math.max(start, prices.after(afterPrice, afterId));
+                    }
+                    positions[s] = prices.next(start, city, filter.maxPrice());
+                }
+                // Слияние типов: каждый раз берётся самый дешёвый из текущих номеров
+                List<String> page = new ArrayList<>(limit);
+                double lastPrice = 0;
+                String lastId = null;
+                while (page.size() < limit) {
+                    int best = -1;
+                    for (int s = 0; s < positions.length; s++) {
+                        Prices prices = sources.get(s);
+                        if (positions[s] < prices.size() && (best < 0 || compare(
+                                prices.prices()[positions[s]], prices.roomIds()[positions[s]],
+                                sources.get(best).prices()[positions[best]],
+                                sources.get(best).roomIds()[positions[best]]) < 0)) {
+                            best = s;
+                        }
+                    }
+                    if (best < 0) {
+                        return new Page(page, null);
+                    }
+                    Prices prices = sources.get(best);
+                    lastPrice = prices.prices()[positions[best]];
+                    lastId = prices.roomIds()[positions[best]];
+                    page.add(lastId);
+                    positions[best] = prices.next(positions[best] + 1, city, filter.maxPrice());
+                }
+                for (int s = 0; s < positions.length; s++) {
+                    if (positions[s] < sources.get(s).size()) {
+                        return new Page(page, lastPrice + ":" + lastId);
+                    }
+                }
+                return new Page(page, null);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Убирает номера rooms и все номера отелей hotels, добавляет entries и пересобирает
+         * массивы только тех типов, которых это коснулось.
+         */
+        void replace(Set<String> rooms, Set<String> hotels, Collection<RoomPriceEntry> entries) {
+            lock.writeLock().lock();
+            try {
+                Set<String> removed = new HashSet<>(rooms);
+                hotels.forEach(hotelId -> removed.addAll(
+                        roomsByHotel.getOrDefault(hotelId, Set.of())));
+                // Перечитанный номер мог остаться в индексе со старой ценой или типом
+                entries.stream().map(RoomPriceEntry::roomId).filter(placements::containsKey)
+                        .forEach(removed::add);
+                // Позиции убираемых строк по типам: цена и id находят их двоичным поиском
+                Map<String, List<Integer>> positions = new HashMap<>();
+                for (String roomId : removed) {
+                    Placement placement = placements.remove(roomId);
+                    if (placement == null) {
+                        continue;
+                    }
+                    int position = byType.get(placement.type()).positionOf(placement.price(),
+                            roomId);
+                    List<Integer> typePositions = positions.computeIfAbsent(placement.type(),
+                            type -> new ArrayList<>());
+                    if (position >= 0) {
+                        typePositions.add(position);
+                    }
+                    Set<String> hotelRooms = roomsByHotel.get(placement.hotelId());
+                    hotelRooms.remove(roomId);
+                    if (hotelRooms.isEmpty()) {
+                        roomsByHotel.remove(placement.hotelId());
+                    }
+                }
+                Map<String, List<Row>> added = new HashMap<>();
+                for (RoomPriceEntry entry : entries) {
+                    if (entry.price() == null || entry.type() == null) {
+                        continue;
+                    }
+                    int city = entry.city() == null ? -2 : cityCodes.computeIfAbsent(
+                            entry.city(), name -> cityCodes.size());
+                    added.computeIfAbsent(entry.type(), type -> new ArrayList<>())
+                            .add(new Row(entry.roomId(), entry.price(), city));
+                    placements.put(entry.roomId(), new Placement(entry.type(),
+                            entry.hotelId(), entry.price()));
+                    roomsByHotel.computeIfAbsent(entry.hotelId(), id -> new HashSet<>())
+                            .add(entry.roomId());
+                    positions.computeIfAbsent(entry.type(), type -> new ArrayList<>());
+                }
+                added.values().forEach(rows -> rows.sort(
+                        Comparator.comparingDouble(Row::price).thenComparing(Row::roomId)));
+                positions.forEach((type, typePositions) -> {
+                    int[] sorted = typePositions.stream().mapToInt(Integer::intValue)
+                            .sorted().toArray();
+                    Prices merged = byType.getOrDefault(type, EMPTY).merge(sorted,
+                            added.getOrDefault(type, List.of()));
+                    if (merged.size() == 0) {
+                        byType.remove(type);
+                    } else {
+                        byType.put(type, merged);
+                    }
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return placements.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.hotelbookingv2.cache;
+
+import com.example.hotelbookingv2.view.FacilityView;
+import com.example.hotelbookingv2.view.RoomView;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Снимок номера с удобствами.
+ */
+public final class RoomSnapshotCodec implements SnapshotCodec<RoomView> {
+
+    @Override
+    public void write(RoomView room, DataOutput out) throws IOException {
+        SnapshotCodec.writeString(out, room.hotelId());
+        writeRoom(room, out);
+    }
+
+    @Override
+    public RoomView read(DataInput in) throws IOException {
+        return readRoom(in, SnapshotCodec.readString(in));
+    }
+
+    static void writeRoom(RoomView room, DataOutput out) throws IOException {
+        SnapshotCodec.writeString(out, room.id());
+        SnapshotCodec.writeString(out, room.roomNumber());
+        SnapshotCodec.writeString(out, room.type());
+        SnapshotCodec.writeDouble(out, room.price());
+        out.writeInt(room.facilities().size());
+        for (FacilityView facility : room.facilities()) {
+            SnapshotCodec.writeString(out, facility.id());
+            SnapshotCodec.writeString(out, facility.name());
+        }
+    }
+
+    static RoomView readRoom(DataInput in, String hotelId) throws IOException {
+        String id = SnapshotCodec.readString(in);
+        String roomNumber = SnapshotCodec.readString(in);
+        String type = SnapshotCodec.readString(in);
+        Double price = SnapshotCodec.readDouble(in);
+        int count = in.readInt();
+        List<FacilityView> facilities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            facilities.add(new FacilityView(SnapshotCodec.readString(in),
+                    SnapshotCodec.readString(in)));
+        }
+        return new RoomView(id, roomNumber, type, price, hotelId, facilities);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.hotelbookingv2.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Компактная бинарная форма значения для уровня кэша вне кучи.
+ */
+public interface SnapshotCodec<T> {
+
+    void write(T value, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Можно ли сохранить значение целиком. Сущность с незагруженными ленивыми связями
+     * сохранять нельзя: после чтения она выглядела бы как сущность с пустыми связями.
+     */
+    default boolean supports(T value) {
+        return true;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeDouble(DataOutput out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.hotelbookingv2.cache;
+
+/**
+ * Оценивает вес записи кэша: сумма весов ограничена максимальным весом кэша.
+ */
+@FunctionalInterface
+public interface Weigher<T> {
+
+    int weigh(String key, T value);
+
+    static <T> Weigher<T> singleton() {
+        return (key, value) -> 1;
+    }
+}
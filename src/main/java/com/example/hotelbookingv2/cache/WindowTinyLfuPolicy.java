@@ -0,0 +1,154 @@
+package com.example.hotelbookingv2.cache;
+
+import java.util.LinkedHashSet;
+
+/**
+ * W-TinyLFU: новые записи попадают в маленькое LRU-окно, а из него в основной
+ * сегментированный LRU (probation + protected) проходят, только если по sketch
+ * обращаются к ним чаще, чем к кандидату на вытеснение из основного сегмента.
+ * Размеры окна и protected-сегмента считаются в весе записей.
+ */
+final class WindowTinyLfuPolicy<T> implements EvictionPolicy<T> {
+
+    static final byte WINDOW = 0;
+    static final byte PROBATION = 1;
+    static final byte PROTECTED = 2;
+
+    // Sketch больше этого размера не даёт выигрыша в точности, только занимает память
+    private static final int MAXIMUM_SKETCH_SIZE = 1 << 20;
+
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+
+    private final LinkedHashSet<LfuCacheBase.Entry<T>> window = new LinkedHashSet<>();
+    private final LinkedHashSet<LfuCacheBase.Entry<T>> probation = new LinkedHashSet<>();
+    private final LinkedHashSet<LfuCacheBase.Entry<T>> protectedSegment = new LinkedHashSet<>();
+    private long windowWeight;
+    private long protectedWeight;
+
+    // Sketch считает обращения к ключам, поэтому его размер зависит от числа записей,
+    // а не от веса: кэшу на 16 МБ ответов хватает sketch на несколько тысяч ключей
+    WindowTinyLfuPolicy(long maximumWeight, long expectedEntries) {
+        windowMaximum = Math.max(1, maximumWeight / 100);
+        protectedMaximum = (maximumWeight - windowMaximum) * 80 / 100;
+        sketch = new FrequencySketch((int) Math.min(expectedEntries, MAXIMUM_SKETCH_SIZE));
+    }
+
+    @Override
+    public void onAdd(LfuCacheBase.Entry<T> entry) {
+        sketch.increment(entry.key);
+        entry.queue = WINDOW;
+        window.add(entry);
+        windowWeight += entry.weight;
+        // Пока кэш не заполнен, вытеснять нечего: лишнее из окна уходит в probation
+        while (windowWeight > windowMaximum && window.size() > 1) {
+            moveToProbation(head(window));
+        }
+    }
+
+    @Override
+    public void onAccess(LfuCacheBase.Entry<T> entry) {
+        sketch.increment(entry.key);
+        switch (entry.queue) {
+            case WINDOW -> moveToTail(window, entry);
+            case PROBATION -> {
+                probation.remove(entry);
+                entry.queue = PROTECTED;
+                protectedSegment.add(entry);
+                protectedWeight += entry.weight;
+                demoteProtectedOverflow();
+            }
+            default -> moveToTail(protectedSegment, entry);
+        }
+    }
+
+    @Override
+    public void onRemove(LfuCacheBase.Entry<T> entry) {
+        switch (entry.queue) {
+            case WINDOW -> {
+                window.remove(entry);
+                windowWeight -= entry.weight;
+            }
+            case PROBATION -> probation.remove(entry);
+            default -> {
+                protectedSegment.remove(entry);
+                protectedWeight -= entry.weight;
+            }
+        }
+    }
+
+    @Override
+    public void onWeightChanged(LfuCacheBase.Entry<T> entry, int delta) {
+        if (entry.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (entry.queue == PROTECTED) {
+            protectedWeight += delta;
+            demoteProtectedOverflow();
+        }
+    }
+
+    @Override
+    public LfuCacheBase.Entry<T> selectVictim(LfuCacheBase.Entry<T> candidate) {
+        LfuCacheBase.Entry<T> mainVictim = head(probation);
+        if (mainVictim == null) {
+            mainVictim = head(protectedSegment);
+        }
+        long incoming = candidate == null ? 0 : candidate.weight;
+        if (windowWeight + incoming <= windowMaximum || window.isEmpty()) {
+            return mainVictim != null ? mainVictim : candidate;
+        }
+
+        // Окно переполнится: его самая давняя запись соревнуется с жертвой основного сегмента
+        LfuCacheBase.Entry<T> windowVictim = head(window);
+        if (mainVictim == null) {
+            return windowVictim;
+        }
+        if (sketch.frequency(windowVictim.key) > sketch.frequency(mainVictim.key)) {
+            moveToProbation(windowVictim);
+            return mainVictim;
+        }
+        return windowVictim;
+    }
+
+    @Override
+    public int frequency(LfuCacheBase.Entry<T> entry) {
+        return sketch.frequency(entry.key);
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        protectedWeight = 0;
+        sketch.clear();
+    }
+
+    private void moveToProbation(LfuCacheBase.Entry<T> entry) {
+        window.remove(entry);
+        windowWeight -= entry.weight;
+        entry.queue = PROBATION;
+        probation.add(entry);
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protectedWeight > protectedMaximum && !protectedSegment.isEmpty()) {
+            LfuCacheBase.Entry<T> demoted = head(protectedSegment);
+            protectedSegment.remove(demoted);
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.add(demoted);
+        }
+    }
+
+    private static <E> void moveToTail(LinkedHashSet<E> queue, E element) {
+        queue.remove(element);
+        queue.add(element);
+    }
+
+    private static <E> E head(LinkedHashSet<E> queue) {
+        return queue.isEmpty() ? null : queue.iterator().next();
+    }
+}
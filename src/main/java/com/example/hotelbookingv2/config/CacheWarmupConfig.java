@@ -0,0 +1,39 @@
+package com.example.hotelbookingv2.config;
+
+import com.example.hotelbookingv2.cache.CacheWarmer;
+import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelEntityCache;
+import com.example.hotelbookingv2.cache.RoomCache;
+import com.example.hotelbookingv2.service.HotelService;
+import com.example.hotelbookingv2.service.ReadModelLoader;
+import com.example.hotelbookingv2.view.KeysetPage;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class CacheWarmupConfig {
+
+    @Bean
+    public CacheWarmer hotelEntityWarmer(HotelEntityCache cache, ReadModelLoader loader) {
+        return new CacheWarmer(cache, ids -> loader.findHotelsById(ids)
+                .forEach(hotel -> cache.put(hotel.id(), hotel)));
+    }
+
+    @Bean
+    public CacheWarmer hotelQueryWarmer(HotelCache cache, HotelService hotelService) {
+        // Выборку по ключу пачкой не загрузить, поэтому каждая выполняется отдельно
+        return new CacheWarmer(cache, keys -> keys.forEach(key -> {
+            HotelCache.QueryFilter filter = HotelCache.parseQueryKey(key);
+            hotelService.getHotels(filter.city(), filter.category(), null,
+                    KeysetPage.DEFAULT_LIMIT);
+        }));
+    }
+
+    @Bean
+    public CacheWarmer roomWarmer(RoomCache cache, ReadModelLoader loader) {
+        return new CacheWarmer(cache, ids -> loader.findRoomsById(ids)
+                .forEach(room -> cache.put(room.id(), room)));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.hotelbookingv2.controller;
+
+import com.example.hotelbookingv2.cache.CacheRegistry;
+import com.example.hotelbookingv2.cache.CacheStatsSnapshot;
+import com.example.hotelbookingv2.exception.ResourceNotFoundException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Кэши", description = "Статистика кэшей приложения")
+@RestController
+@RequestMapping("/caches")
+public class CacheStatsController {
+
+    private final CacheRegistry cacheRegistry;
+
+    public CacheStatsController(CacheRegistry cacheRegistry) {
+        this.cacheRegistry = cacheRegistry;
+    }
+
+    @Operation(summary = "Статистика всех кэшей",
+            description = "Попадания, промахи, загрузки, вытеснения по причинам и текущий вес")
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStatsSnapshot>> getStats() {
+        return ResponseEntity.ok(cacheRegistry.getStats());
+    }
+
+    @Operation(summary = "Статистика кэша по имени",
+            description = "Возвращает статистику одного кэша, например HotelCache")
+    @GetMapping("/stats/{name}")
+    public ResponseEntity<CacheStatsSnapshot> getStats(
+            @Parameter(description = "Имя кэша") @PathVariable String name) {
+        return cacheRegistry.getStats(name)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Кэш " + name + " не найден"));
+    }
+}
@@ -1,17 +1,23 @@
 package com.example.hotelbookingv2.controller;
 
+import com.example.hotelbookingv2.cache.HotelResponseCache;
 import com.example.hotelbookingv2.dto.HotelDto;
 import com.example.hotelbookingv2.mapper.HotelMapper;
 import com.example.hotelbookingv2.model.Hotel;
 import com.example.hotelbookingv2.service.HotelService;
 import com.example.hotelbookingv2.service.VisitCounterService;
+import com.example.hotelbookingv2.view.HotelSummary;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.KeysetPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,9 +25,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Отели", description = "Управление отелями") // Описание всего контроллера
 @RestController
@@ -32,32 +40,82 @@ public class HotelRestController {
     private final HotelService hotelService;
     private final HotelMapper hotelMapper;
     private final VisitCounterService visitCounterService;
+    private final HotelResponseCache hotelResponseCache;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @Operation(summary = "Получить список отелей",
-            description = "Позволяет получить список отелей с фильтрацией по городу и категории")
+            description = "Позволяет получить список отелей с фильтрацией по городу и категории;"
+                    + " отели упорядочены по ID и отдаются постранично")
     @GetMapping
-    public ResponseEntity<List<HotelDto>> getHotels(
+    public ResponseEntity<List<HotelView>> getHotels(
             @Parameter(description = "Город, в котором находится отель")
             @RequestParam(required = false) String city,
             @Parameter(description = "Категория отеля (например, 5 звезд)")
-            @RequestParam(required = false) String category) {
+            @RequestParam(required = false) String category,
+            @Parameter(description = "Курсор из заголовка X-Next-Cursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше 100")
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit) {
 
         visitCounterService.increment(); // увеличиваем счётчик
 
-        List<Hotel> hotels = hotelService.getHotels(city, category);
-        List<HotelDto> hotelDtos = hotels.stream()
-                .map(hotelMapper::convertToDto)
-                .toList();
-        return ResponseEntity.ok(hotelDtos);
+        // Снимки из кэша сериализуются как есть
+        return hotelService.getHotels(city, category, cursor, limit).toResponse();
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<HotelDto> getHotelById(
-            @Parameter(description = "Идентификатор отеля") @PathVariable String id) {
+    @Operation(summary = "Получить краткий список отелей",
+            description = "С параметром view=summary: те же отели и страницы, что и в полном"
+                    + " списке, но только название, город, категория и дата, без номеров")
+    @GetMapping(params = "view=summary")
+    public ResponseEntity<List<HotelSummary>> getHotelSummaries(
+            @Parameter(description = "Город, в котором находится отель")
+            @RequestParam(required = false) String city,
+            @Parameter(description = "Категория отеля (например, 5 звезд)")
+            @RequestParam(required = false) String category,
+            @Parameter(description = "Курсор из заголовка X-Next-Cursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше 100")
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit) {
+
+        visitCounterService.increment();
+
+        return hotelService.getHotelSummaries(city, category, cursor, limit).toResponse();
+    }
+
+    @Operation(summary = "Выгрузить отели",
+            description = "Все отели под фильтры без страниц, по одному JSON-объекту на строку;"
+                    + " отели передаются по мере чтения из базы")
+    @GetMapping(produces = NdjsonStreamer.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportHotels(
+            @Parameter(description = "Город, в котором находится отель")
+            @RequestParam(required = false) String city,
+            @Parameter(description = "Категория отеля (например, 5 звезд)")
+            @RequestParam(required = false) String category) {
+
+        visitCounterService.increment();
+
+        return ndjsonStreamer.stream(sink -> hotelService.forEachHotel(city, category,
+                hotel -> sink.accept(hotelMapper.convertToDto(hotel))));
+    }
+
+    @Operation(summary = "Получить отель по ID",
+            description = "Возвращает отель с номерами; при совпадении If-None-Match отвечает 304")
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getHotelById(
+            @Parameter(description = "Идентификатор отеля") @PathVariable String id,
+            @Parameter(description = "ETag из предыдущего ответа")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        Hotel hotel = hotelService.getHotelById(id); // уже Hotel, не Optional
-        HotelDto dto = hotelMapper.convertToDto(hotel);
-        return ResponseEntity.ok(dto);
+        // Ответ сериализуется из снимка отеля только при промахе кэша ответов
+        HotelResponseCache.Response response = hotelResponseCache.getOrRender(id,
+                hotelService::getHotelById);
+        if (response.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(response.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(response.etag())
+                .body(response.body());
     }
 
 
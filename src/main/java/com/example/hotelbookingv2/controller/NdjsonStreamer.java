@@ -0,0 +1,67 @@
+package com.example.hotelbookingv2.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Ответ в формате NDJSON: по одному компактному JSON-объекту на строку. Строки пишутся
+ * в ответ по мере того, как источник их выдаёт, поэтому память не зависит от размера
+ * выборки. Первая строка отправляется клиенту сразу, дальше поток сбрасывается пачками.
+ */
+@Component
+public class NdjsonStreamer {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final ObjectWriter writer;
+
+    public NdjsonStreamer(ObjectMapper objectMapper) {
+        // Строки разделяются переводом строки, а не разделителем Jackson по умолчанию
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+    }
+
+    /**
+     * Ответ, тело которого пишет source: он передаёт каждый объект выборки в полученный sink.
+     */
+    public ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<Object>> source) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MEDIA_TYPE))
+                .body(out -> write(out, source));
+    }
+
+    public void write(OutputStream out, Consumer<Consumer<Object>> source) throws IOException {
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            int[] written = {0};
+            try {
+                source.accept(item -> {
+                    try {
+                        writer.writeValue(generator, item);
+                        generator.writeRaw('\n');
+                        if (written[0]++ % FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.hotelbookingv2.controller;
 
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
 import com.example.hotelbookingv2.dto.RoomDto;
 import com.example.hotelbookingv2.mapper.RoomMapper;
 import com.example.hotelbookingv2.model.Room;
 import com.example.hotelbookingv2.service.RoomService;
+import com.example.hotelbookingv2.view.KeysetPage;
+import com.example.hotelbookingv2.view.RoomView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -20,7 +23,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @Tag(name = "Комнаты", description = "API для управления номерами в отелях") // Описание контроллера
@@ -32,37 +37,93 @@ public class RoomRestController {
 
     private final RoomService roomService;
     private final RoomMapper roomMapper;
+    private final NdjsonStreamer ndjsonStreamer;
 
-    public RoomRestController(RoomService roomService, RoomMapper roomMapper) {
+    public RoomRestController(RoomService roomService, RoomMapper roomMapper,
+                              NdjsonStreamer ndjsonStreamer) {
         this.roomService = roomService;
         this.roomMapper = roomMapper;
+        this.ndjsonStreamer = ndjsonStreamer;
     }
 
     @Operation(summary = "Получить номера отеля",
-            description = "Возвращает список номеров по ID отеля")
+            description = "Возвращает номера отеля по его ID постранично, по возрастанию ID")
     @GetMapping("/hotel/{hotelId}")
-    public ResponseEntity<List<Room>> getRoomsByHotel(
-            @Parameter(description = "ID отеля") @PathVariable String hotelId) {
-        List<Room> rooms = roomService.findRoomsByHotel(hotelId);
-        return ResponseEntity.ok(rooms);
+    public ResponseEntity<List<RoomView>> getRoomsByHotel(
+            @Parameter(description = "ID отеля") @PathVariable String hotelId,
+            @Parameter(description = "Курсор из заголовка X-Next-Cursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше 100")
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit) {
+        return roomService.findRoomsByHotel(hotelId, cursor, limit).toResponse();
     }
 
     @Operation(summary = "Получить номера с удобством",
-            description = "Возвращает список номеров с указанным удобством")
+            description = "Возвращает номера с указанным удобством постранично,"
+                    + " по возрастанию ID")
     @GetMapping("/facility/{facilityName}")
-    public ResponseEntity<List<Room>> getRoomsByFacility(
+    public ResponseEntity<List<RoomView>> getRoomsByFacility(
+            @Parameter(description = "Название удобства (например, WiFi, бассейн)")
+            @PathVariable String facilityName,
+            @Parameter(description = "Курсор из заголовка X-Next-Cursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше 100")
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit) {
+        return roomService.findRoomsByFacility(facilityName, cursor, limit).toResponse();
+    }
+
+    @Operation(summary = "Найти номера по набору удобств",
+            description = "Возвращает постранично номера со всеми перечисленными удобствами"
+                    + " (match=ALL) или хотя бы с одним из них (match=ANY)")
+    @GetMapping("/search")
+    public ResponseEntity<List<RoomView>> searchRoomsByFacilities(
+            @Parameter(description = "Названия удобств, например facilities=WiFi,Бассейн")
+            @RequestParam List<String> facilities,
+            @Parameter(description = "ALL — все удобства сразу, ANY — хотя бы одно")
+            @RequestParam(defaultValue = "ALL") RoomFacilityIndex.Match match,
+            @Parameter(description = "Курсор из заголовка X-Next-Cursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше 100")
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit) {
+        return roomService.searchByFacilities(facilities, match, cursor, limit).toResponse();
+    }
+
+    @Operation(summary = "Найти номера по цене",
+            description = "Возвращает постранично номера в диапазоне цен, самые дешёвые первыми;"
+                    + " тип номера и город отеля необязательны")
+    @GetMapping("/search/price")
+    public ResponseEntity<List<RoomView>> searchRoomsByPrice(
+            @Parameter(description = "Город отеля") @RequestParam(required = false) String city,
+            @Parameter(description = "Тип номера") @RequestParam(required = false) String type,
+            @Parameter(description = "Минимальная цена") @RequestParam(required = false)
+            Double minPrice,
+            @Parameter(description = "Максимальная цена") @RequestParam(required = false)
+            Double maxPrice,
+            @Parameter(description = "Курсор из заголовка X-Next-Cursor предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Сколько самых дешёвых номеров вернуть, не больше 100")
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit) {
+        return roomService.searchByPrice(city, type, minPrice, maxPrice, cursor, limit)
+                .toResponse();
+    }
+
+    @Operation(summary = "Выгрузить номера с удобством",
+            description = "Все номера с указанным удобством без страниц, по одному JSON-объекту"
+                    + " на строку; номера передаются по мере чтения из базы")
+    @GetMapping(value = "/facility/{facilityName}", produces = NdjsonStreamer.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportRoomsByFacility(
             @Parameter(description = "Название удобства (например, WiFi, бассейн)")
             @PathVariable String facilityName) {
-        List<Room> rooms = roomService.findRoomsByFacility(facilityName);
-        return ResponseEntity.ok(rooms);
+        return ndjsonStreamer.stream(sink -> roomService.forEachRoomWithFacility(facilityName,
+                room -> sink.accept(roomMapper.toDto(room))));
     }
 
     @Operation(summary = "Получить номер по ID",
             description = "Возвращает информацию о номере по его ID")
     @GetMapping("/{id}")
-    public ResponseEntity<Room> getRoomById(
+    public ResponseEntity<RoomView> getRoomById(
             @Parameter(description = "ID номера") @PathVariable String id) {
-        Room room = roomService.getRoomById(id);
+        RoomView room = roomService.getRoomById(id);
         return ResponseEntity.ok(room);
     }
 
@@ -27,7 +27,7 @@ public class RoomMapper {
         room.setType(dto.getType());
         room.setPrice(dto.getPrice());
 
-        Hotel hotel = hotelService.getHotelById(dto.getHotelId());
+        Hotel hotel = hotelService.getHotelReference(dto.getHotelId());
         room.setHotel(hotel);
 
         if (dto.getFacilities() != null) {
@@ -17,6 +17,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "facilities")
@@ -24,6 +26,7 @@ import lombok.Setter;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "facilities")
 public class Facility {
 
     @Id
@@ -35,6 +38,7 @@ public class Facility {
 
     @ManyToMany(mappedBy = "facilities", fetch = FetchType.LAZY)
     @JsonBackReference
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "facility-rooms")
     private List<Room> rooms = new ArrayList<>();
 
     public Facility(String id, String name) {
@@ -7,6 +7,7 @@ import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -19,14 +20,20 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "rooms")
+// Номера отеля читаются страницами по id
+@Table(name = "rooms",
+        indexes = @Index(name = "idx_rooms_hotel_id_id", columnList = "hotel_id, id"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "rooms")
 public class Room {
 
 
@@ -47,9 +54,16 @@ public class Room {
     @JoinTable(
             name = "room_facilities",
             joinColumns = @JoinColumn(name = "room_id"),
-            inverseJoinColumns = @JoinColumn(name = "facility_id")
+            inverseJoinColumns = @JoinColumn(name = "facility_id"),
+            indexes = @Index(name = "idx_room_facilities_facility_id_room_id",
+                    columnList = "facility_id, room_id")
     )
     @JsonManagedReference
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "room-facilities")
+    // Удобства номеров, загруженных в сессию, дочитываются одним запросом IN на всю страницу:
+    // 101 — наибольший лимит страницы (KeysetPage.MAX_LIMIT) плюс строка-признак следующей.
+    // Наборы из кэша второго уровня в запрос не попадают
+    @BatchSize(size = 101)
     private List<Facility> facilities = new ArrayList<>();
 
     public void addFacility(Facility facility) {
@@ -1,18 +1,47 @@
 package com.example.hotelbookingv2.repository;
 
 import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.view.HotelFilterEntry;
+import com.example.hotelbookingv2.view.HotelSummary;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface HotelRepository extends JpaRepository<Hotel, String> {
-    List<Hotel> findByCityAndCategory(String city, String category);
+    Optional<Hotel> getHotelById(String id);
 
-    List<Hotel> findByCity(String city);
+    // Только атрибуты фильтров: индекс строится без загрузки отелей целиком.
+    // На выборки по городу и категории отвечает сам индекс, отдельные запросы не нужны
+    @Query("SELECT new com.example.hotelbookingv2.view.HotelFilterEntry("
+            + "h.id, h.city, h.category) FROM Hotel h")
+    List<HotelFilterEntry> findFilterEntries();
 
-    List<Hotel> findByCategory(String category);
+    // Отели вместе с номерами одним запросом; Hibernate сам убирает повторы отелей,
+    // которые даёт соединение с номерами
+    @Query("SELECT h FROM Hotel h LEFT JOIN FETCH h.rooms WHERE h.id IN :ids")
+    List<Hotel> findWithRoomsByIdIn(@Param("ids") Collection<String> ids);
 
-    Optional<Hotel> getHotelById(String id);
+    // Краткие сведения для списков: только нужные столбцы, сущности в сессию не попадают
+    @Query("SELECT new com.example.hotelbookingv2.view.HotelSummary("
+            + "h.id, h.name, h.city, h.category, h.availableFromDate) FROM Hotel h"
+            + " WHERE h.id IN :ids")
+    List<HotelSummary> findSummariesByIdIn(@Param("ids") Collection<String> ids);
+
+    // Выгрузка курсором базы: строки приходят пачками по fetch size, а не всей выборкой
+    @Query("SELECT h FROM Hotel h WHERE (:city IS NULL OR h.city = :city)"
+            + " AND (:category IS NULL OR h.category = :category)")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Hotel> streamHotels(@Param("city") String city, @Param("category") String category);
 }
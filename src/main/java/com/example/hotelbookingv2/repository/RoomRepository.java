@@ -1,28 +1,87 @@
 package com.example.hotelbookingv2.repository;
 
 import com.example.hotelbookingv2.model.Room;
+import com.example.hotelbookingv2.view.RoomFacilityEntry;
+import com.example.hotelbookingv2.view.RoomPriceEntry;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface RoomRepository extends JpaRepository<Room, String> {
 
-    //SELECT r FROM Room r WHERE r.hotel.id = :hotelId
-    @Query(value = "SELECT * FROM rooms r WHERE r.hotel_id = :hotelId", nativeQuery = true)
-    List<Room> findRoomsByHotel(@Param("hotelId") String hotelId);
+    //SELECT * FROM rooms r WHERE r.hotel_id = :hotelId
+    //nativeQuery = true
+    // JPQL, а не нативный запрос: по нему Hibernate знает, что результат зависит только
+    // от таблицы rooms, и сбрасывает закэшированный результат при её изменении
+    // Страница по ключу: номера после id after, по индексу (hotel_id, id) без OFFSET.
+    // Для первой страницы after — пустая строка, она меньше любого id
+    @Query("SELECT r FROM Room r WHERE r.hotel.id = :hotelId AND r.id > :after ORDER BY r.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Room> findRoomsByHotel(@Param("hotelId") String hotelId, @Param("after") String after,
+                                Limit limit);
 
 
     //SELECT r.id, r.room_number, r.type, r.price, r.hotel_id FROM rooms r
     //JOIN room_facilities rf ON r.id = rf.room_id
-    //JOIN facilities f ON rf.facility_id = f.id
-    //WHERE f.name = :facilityName
+    //WHERE rf.facility_id = :facilityId
     //nativeQuery = true
-    @Query("SELECT r FROM Room r JOIN r.facilities f WHERE f.name = :facilityName")
-    List<Room> findRoomsByFacility(@Param("facilityName") String facilityName);
+    @Query("SELECT r FROM Room r JOIN r.facilities f WHERE f.id = :facilityId AND r.id > :after"
+            + " ORDER BY r.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Room> findRoomsByFacilityId(@Param("facilityId") String facilityId,
+                                     @Param("after") String after, Limit limit);
+
+    // Удобства номеров соединением: номера, уже загруженные в сессию вместе с отелями,
+    // получают удобства без запроса на каждый номер
+    @Query("SELECT r FROM Room r LEFT JOIN FETCH r.facilities WHERE r.hotel.id IN :hotelIds")
+    List<Room> findWithFacilitiesByHotelIdIn(@Param("hotelIds") Collection<String> hotelIds);
+
+    @Query("SELECT r FROM Room r LEFT JOIN FETCH r.facilities WHERE r.id IN :ids")
+    List<Room> findWithFacilitiesByIdIn(@Param("ids") Collection<String> ids);
+
+    // Выгрузка курсором базы, без страниц: строки приходят пачками по fetch size
+    @Query("SELECT r FROM Room r JOIN r.facilities f WHERE f.id = :facilityId")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Room> streamRoomsByFacilityId(@Param("facilityId") String facilityId);
+
+    // Только пары id номера и удобства, из них строится индекс поиска по удобствам
+    @Query("SELECT new com.example.hotelbookingv2.view.RoomFacilityEntry(r.id, f.id)"
+            + " FROM Room r JOIN r.facilities f")
+    List<RoomFacilityEntry> findFacilityEntries();
+
+    @Query("SELECT new com.example.hotelbookingv2.view.RoomFacilityEntry(r.id, f.id)"
+            + " FROM Room r JOIN r.facilities f WHERE r.id IN :roomIds")
+    List<RoomFacilityEntry> findFacilityEntriesByRoomIdIn(
+            @Param("roomIds") Collection<String> roomIds);
+
+    // Тип, цена и город отеля каждого номера, из них строится индекс поиска по цене
+    @Query("SELECT new com.example.hotelbookingv2.view.RoomPriceEntry(r.id, r.type,"
+            + " r.price, h.id, h.city) FROM Room r JOIN r.hotel h")
+    List<RoomPriceEntry> findPriceEntries();
+
+    @Query("SELECT new com.example.hotelbookingv2.view.RoomPriceEntry(r.id, r.type,"
+            + " r.price, h.id, h.city) FROM Room r JOIN r.hotel h WHERE r.id IN :roomIds")
+    List<RoomPriceEntry> findPriceEntriesByRoomIdIn(
+            @Param("roomIds") Collection<String> roomIds);
+
+    @Query("SELECT new com.example.hotelbookingv2.view.RoomPriceEntry(r.id, r.type,"
+            + " r.price, h.id, h.city) FROM Room r JOIN r.hotel h WHERE h.id IN :hotelIds")
+    List<RoomPriceEntry> findPriceEntriesByHotelIdIn(
+            @Param("hotelIds") Collection<String> hotelIds);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByRoomNumberAndHotelId(String roomNumber, String hotelId);
 
 
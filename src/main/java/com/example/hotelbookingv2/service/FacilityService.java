@@ -1,5 +1,12 @@
 package com.example.hotelbookingv2.service;
 
+import com.example.hotelbookingv2.cache.AfterCommit;
+import com.example.hotelbookingv2.cache.FacilityCache;
+import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.cache.InvalidationBus;
+import com.example.hotelbookingv2.cache.RoomCache;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
 import com.example.hotelbookingv2.dto.FacilityDto;
 import com.example.hotelbookingv2.exception.AlreadyExistsException;
 import com.example.hotelbookingv2.exception.InvalidInputException;
@@ -19,6 +26,17 @@ public class FacilityService {
 
     private final RoomRepository roomRepository;
     private final FacilityRepository facilityRepository;
+    private final FacilityCache facilityCache;
+    private final InvalidationBus invalidationBus;
+    // Названия удобств вшиты в снимки номеров и отелей
+    private final RoomCache roomCache;
+    private final HotelCache hotelCache;
+    private final HotelResponseCache hotelResponseCache;
+    private final RoomFacilityIndex facilityIndex;
+
+    private FacilityCache.Snapshot catalogue() {
+        return facilityCache.get(facilityRepository::findAll);
+    }
 
     @Transactional
     public FacilityDto createFacility(FacilityDto facilityDto) {
@@ -30,6 +48,9 @@ public class FacilityService {
         facility.setName(facilityDto.getName());
 
         Facility savedFacility = facilityRepository.save(facility);
+        // Новое удобство ещё ни в одном номере, снимки номеров остаются верными
+        AfterCommit.run(() -> facilityCache.put(savedFacility));
+        invalidationBus.facilityChanged(savedFacility.getId());
 
         return new FacilityDto(savedFacility.getId(), savedFacility.getName());
     }
@@ -40,19 +61,18 @@ public class FacilityService {
             throw new InvalidInputException("ID удобства не может быть пустым");
         }
 
-        Facility facility = facilityRepository.findById(facilityId)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Удобство с ID " + facilityId + " не найдено"
-                ));
+        String name = catalogue().nameOf(facilityId);
+        if (name == null) {
+            throw new ResourceNotFoundException("Удобство с ID " + facilityId + " не найдено");
+        }
 
-        return new FacilityDto(facility.getId(), facility.getName());
+        return new FacilityDto(facilityId, name);
     }
 
     @Transactional
     public List<FacilityDto> getAllFacilities() {
-        List<Facility> facilities = facilityRepository.findAll();
-        return facilities.stream()
-                .map(facility -> new FacilityDto(facility.getId(), facility.getName()))
+        return catalogue().names().entrySet().stream()
+                .map(entry -> new FacilityDto(entry.getKey(), entry.getValue()))
                 .toList();
     }
 
@@ -60,7 +80,9 @@ public class FacilityService {
         if (facility.getName() == null || facility.getName().isBlank()) {
             throw new InvalidInputException("Название не должно быть пустым");
         }
-        return facilityRepository.save(facility);
+        Facility savedFacility = facilityRepository.save(facility);
+        facilityChanged(savedFacility);
+        return savedFacility;
     }
 
 
@@ -83,6 +105,7 @@ public class FacilityService {
 
         facility.setName(facilityDto.getName());
         facilityRepository.save(facility);
+        facilityChanged(facility);
 
         return new FacilityDto(facility.getId(), facility.getName());
     }
@@ -95,15 +118,19 @@ public class FacilityService {
         Room room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new ResourceNotFoundException("Комната не найдена"));
 
-        Facility facility = facilityRepository.findById(facilityId)
-                .orElseThrow(() -> new ResourceNotFoundException("Удобство c таким id не найдено"));
+        if (!catalogue().contains(facilityId)) {
+            throw new ResourceNotFoundException("Удобство c таким id не найдено");
+        }
 
-        if (room.getFacilities().contains(facility)) {
+        if (containsFacility(room, facilityId)) {
             throw new AlreadyExistsException("Удобство уже добавлено в комнату");
         }
 
-        room.addFacility(facility);
+        // Связь хранится на стороне комнаты, так что хватает ссылки без загрузки удобства
+        room.getFacilities().add(facilityRepository.getReferenceById(facilityId));
         roomRepository.save(room);
+        facilityIndex.add(roomId, facilityId);
+        roomChanged(room);
     }
 
     @Transactional
@@ -114,15 +141,17 @@ public class FacilityService {
         Room room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new ResourceNotFoundException("Комната не найдена"));
 
-        Facility facility = facilityRepository.findById(facilityId)
-                .orElseThrow(() -> new ResourceNotFoundException("Удобство не найдено"));
+        if (!catalogue().contains(facilityId)) {
+            throw new ResourceNotFoundException("Удобство не найдено");
+        }
 
-        if (!room.getFacilities().contains(facility)) {
+        if (!room.getFacilities().removeIf(facility -> facilityId.equals(facility.getId()))) {
             throw new ResourceNotFoundException("Удобство не связано с этой комнатой");
         }
 
-        room.removeFacility(facility);
         roomRepository.save(room);
+        facilityIndex.remove(roomId, facilityId);
+        roomChanged(room);
     }
 
     @Transactional
@@ -137,6 +166,45 @@ public class FacilityService {
                 ));
 
         facilityRepository.delete(facility);
+        // Справочник считается полным: до коммита удаление ещё может не пройти,
+        // например из-за номеров, которые ссылаются на удобство
+        AfterCommit.run(() -> {
+            facilityCache.remove(facilityId);
+            clearSnapshots();
+        });
+        facilityIndex.removeFacility(facilityId);
+        invalidationBus.facilityChanged(facilityId);
+    }
+
+    private static boolean containsFacility(Room room, String facilityId) {
+        return room.getFacilities().stream()
+                .anyMatch(facility -> facilityId.equals(facility.getId()));
+    }
+
+    // Состав удобств номера закэширован вместе с номером и отелем, здесь и на других узлах
+    private void roomChanged(Room room) {
+        String hotelId = room.getHotel() != null ? room.getHotel().getId() : null;
+        AfterCommit.run(() -> roomCache.remove(room.getId()));
+        if (hotelId != null) {
+            AfterCommit.run(() -> hotelCache.removeHotel(hotelId));
+            hotelResponseCache.invalidate(hotelId);
+        }
+        invalidationBus.roomChanged(room.getId(), hotelId);
+    }
+
+    private void facilityChanged(Facility facility) {
+        AfterCommit.run(() -> {
+            facilityCache.put(facility);
+            clearSnapshots();
+        });
+        invalidationBus.facilityChanged(facility.getId());
+    }
+
+    // Удобства меняются редко, поэтому проще сбросить все снимки, чем искать номера с ним
+    private void clearSnapshots() {
+        roomCache.clear();
+        hotelCache.clearHotels();
+        hotelResponseCache.clear();
     }
 }
 
@@ -1,11 +1,19 @@
 package com.example.hotelbookingv2.service;
 
 import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelFilterIndex;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.cache.InvalidationBus;
+import com.example.hotelbookingv2.cache.NegativeCache;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
 import com.example.hotelbookingv2.exception.InvalidInputException;
 import com.example.hotelbookingv2.exception.ResourceNotFoundException;
 import com.example.hotelbookingv2.model.Hotel;
 import com.example.hotelbookingv2.repository.HotelRepository;
-import java.util.List;
+import com.example.hotelbookingv2.view.HotelSummary;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.KeysetPage;
+import java.util.function.Consumer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -14,66 +22,108 @@ public class HotelService {
 
     private final HotelRepository hotelRepository;
     private final HotelCache hotelCache;
+    private final NegativeCache negativeCache;
+    private final HotelResponseCache responseCache;
+    private final InvalidationBus invalidationBus;
+    private final ReadModelLoader readModelLoader;
+    private final HotelFilterIndex filterIndex;
+    // Город отеля хранится в строках его номеров
+    private final RoomPriceIndex priceIndex;
 
     @Autowired
-    public HotelService(HotelRepository hotelRepository, HotelCache hotelCache) {
+    public HotelService(HotelRepository hotelRepository, HotelCache hotelCache,
+                        NegativeCache negativeCache, HotelResponseCache responseCache,
+                        InvalidationBus invalidationBus, ReadModelLoader readModelLoader,
+                        HotelFilterIndex filterIndex, RoomPriceIndex priceIndex) {
         this.hotelRepository = hotelRepository;
+        this.readModelLoader = readModelLoader;
+        this.filterIndex = filterIndex;
+        this.priceIndex = priceIndex;
         this.hotelCache = hotelCache;
+        this.negativeCache = negativeCache;
+        this.responseCache = responseCache;
+        this.invalidationBus = invalidationBus;
     }
 
-    public List<Hotel> getHotels(String city, String category) {
-        String cacheKey = generateCacheKey(city, category);
-
-        List<Hotel> cachedHotels = hotelCache.get(cacheKey);
-        if (cachedHotels != null) {
-            return cachedHotels;
-        }
-
-        List<Hotel> hotels;
-        if (city != null && category != null) {
-            hotels = hotelRepository.findByCityAndCategory(city, category);
-        } else if (city != null) {
-            hotels = hotelRepository.findByCity(city);
-        } else if (category != null) {
-            hotels = hotelRepository.findByCategory(category);
-        } else {
-            hotels = hotelRepository.findAll();
-        }
-
-        hotelCache.put(cacheKey, hotels);
-        return hotels;
+    public KeysetPage<HotelView> getHotels(String city, String category, String cursor,
+                                           int limit) {
+        KeysetPage.checkLimit(limit);
+        // id выборки даёт пересечение битовых карт индекса, без запроса в базу. Отели
+        // страницы, которых нет в кэше отелей, догружаются одним запросом по id
+        return hotelCache.getPage(city, category, KeysetPage.after(cursor), limit,
+                () -> filterIndex.find(city, category, hotelRepository::findFilterEntries),
+                readModelLoader::findHotelsById);
     }
 
-    private String generateCacheKey(String city, String category) {
-        return city + ":" + category;
+    /**
+     * Та же выборка и те же страницы, что и {@link #getHotels}, но без номеров: отели,
+     * которых нет в кэше отелей, читаются проекцией из нескольких столбцов.
+     */
+    public KeysetPage<HotelSummary> getHotelSummaries(String city, String category,
+                                                      String cursor, int limit) {
+        KeysetPage.checkLimit(limit);
+        return hotelCache.getSummaryPage(city, category, KeysetPage.after(cursor), limit,
+                () -> filterIndex.find(city, category, hotelRepository::findFilterEntries),
+                hotelRepository::findSummariesByIdIn);
     }
 
-    public Hotel getHotelById(String id) {
-        List<Hotel> cachedHotels = hotelCache.get(id);
-        if (cachedHotels != null && !cachedHotels.isEmpty()) {
-            return cachedHotels.get(0);
-        }
+    /**
+     * Выгрузка всех отелей под фильтры без страниц; action получает отели по одному
+     * внутри транзакции чтения, пока открыт курсор.
+     */
+    public void forEachHotel(String city, String category, Consumer<Hotel> action) {
+        readModelLoader.forEachHotel(city, category, action);
+    }
 
-        return hotelRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Отель не найден"));
+    public HotelView getHotelById(String id) {
+        return hotelCache.getHotel(id, key -> {
+            if (negativeCache.isMissing(NegativeCache.Kind.HOTEL, key)) {
+                throw new ResourceNotFoundException("Отель не найден");
+            }
+            return readModelLoader.findHotel(key).orElseThrow(() -> {
+                negativeCache.markMissing(NegativeCache.Kind.HOTEL, key);
+                return new ResourceNotFoundException("Отель не найден");
+            });
+        });
     }
 
+    /**
+     * Ссылка на отель для связи с номером. Существование проверяется по кэшу,
+     * сама сущность из базы не загружается.
+     */
+    public Hotel getHotelReference(String id) {
+        getHotelById(id);
+        return hotelRepository.getReferenceById(id);
+    }
 
     public Hotel saveHotel(Hotel hotel) {
         if (hotel.getName() == null || hotel.getName().isBlank()) {
             throw new InvalidInputException("Название отеля не должно быть пустым");
         }
         Hotel savedHotel = hotelRepository.save(hotel);
-        hotelCache.put(savedHotel.getId(), List.of(savedHotel));
+        negativeCache.invalidate(NegativeCache.Kind.HOTEL, savedHotel.getId());
+        // Снимок соберётся при следующем чтении: номера сохранённого отеля могут быть
+        // не загружены, а их удобства пришли из запроса без названий
+        hotelCache.removeHotel(savedHotel.getId());
+        filterIndex.put(savedHotel.getId(), savedHotel.getCity(), savedHotel.getCategory());
+        priceIndex.invalidateHotel(savedHotel.getId());
+        hotelCache.invalidateQueries(savedHotel.getCity(), savedHotel.getCategory());
+        responseCache.invalidate(savedHotel.getId());
+        invalidationBus.hotelChanged(savedHotel.getId(), savedHotel.getCity(),
+                savedHotel.getCategory());
         return savedHotel;
     }
 
     public void deleteHotel(String id) {
-        if (!hotelRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Отель с ID " + id + " не найден");
-        }
-        hotelRepository.deleteById(id);
-        hotelCache.remove(id);
+        Hotel hotel = hotelRepository.findById(id).orElseThrow(
+                () -> new ResourceNotFoundException("Отель с ID " + id + " не найден"));
+        hotelRepository.delete(hotel);
+        hotelCache.removeHotel(id);
+        filterIndex.remove(id);
+        priceIndex.invalidateHotel(id);
+        responseCache.invalidate(id);
+        hotelCache.invalidateQueries(hotel.getCity(), hotel.getCategory());
+        invalidationBus.hotelDeleted(id, hotel.getCity(), hotel.getCategory());
     }
 
     public Hotel updateHotel(String id, Hotel updatedHotel) {
@@ -87,6 +137,8 @@ public class HotelService {
             throw new InvalidInputException("Категория отеля не должна быть пустой");
         }
         return hotelRepository.findById(id).map(existingHotel -> {
+            String oldCity = existingHotel.getCity();
+            String oldCategory = existingHotel.getCategory();
             existingHotel.setName(updatedHotel.getName());
             existingHotel.setCity(updatedHotel.getCity());
             existingHotel.setCategory(updatedHotel.getCategory());
@@ -96,7 +148,15 @@ public class HotelService {
                 existingHotel.getRooms().addAll(updatedHotel.getRooms());
             }
             Hotel savedHotel = hotelRepository.save(existingHotel);
-            hotelCache.put(id, List.of(savedHotel));
+            hotelCache.removeHotel(id);
+            filterIndex.put(id, savedHotel.getCity(), savedHotel.getCategory());
+            priceIndex.invalidateHotel(id);
+            responseCache.invalidate(id);
+            // Отель мог переехать: он пропадает из старых выборок и появляется в новых
+            hotelCache.invalidateQueries(oldCity, oldCategory);
+            hotelCache.invalidateQueries(savedHotel.getCity(), savedHotel.getCategory());
+            invalidationBus.hotelChanged(id, oldCity, oldCategory);
+            invalidationBus.hotelChanged(id, savedHotel.getCity(), savedHotel.getCategory());
             return savedHotel;
         }).orElseThrow(() -> new ResourceNotFoundException("Отель с ID " + id + " не найден"));
     }
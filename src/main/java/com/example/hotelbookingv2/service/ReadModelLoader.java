@@ -0,0 +1,116 @@
+package com.example.hotelbookingv2.service;
+
+import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.model.Room;
+import com.example.hotelbookingv2.repository.HotelRepository;
+import com.example.hotelbookingv2.repository.RoomRepository;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.RoomView;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Загружает отели и номера и сразу собирает из них неизменяемые снимки для кэшей.
+ * Ленивые связи дочитываются в собственной транзакции: загрузчики кэшей вызываются
+ * и из фоновых потоков — обновления выборок и прогрева, — где открытой сессии нет.
+ * Граф «отель — номера — удобства» читается постоянным числом запросов, сколько бы
+ * отелей ни было: номера соединением с отелями, удобства одним запросом на все номера.
+ * Выгрузки идут по курсору базы и передают сущности по одной, не накапливая их в сессии.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ReadModelLoader {
+
+    // Совпадает с fetch size запросов выгрузки
+    private static final int EXPORT_BATCH = 500;
+
+    private final HotelRepository hotelRepository;
+    private final RoomRepository roomRepository;
+    private final EntityManager entityManager;
+
+    public ReadModelLoader(HotelRepository hotelRepository, RoomRepository roomRepository,
+                           EntityManager entityManager) {
+        this.hotelRepository = hotelRepository;
+        this.roomRepository = roomRepository;
+        this.entityManager = entityManager;
+    }
+
+    public Optional<HotelView> findHotel(String id) {
+        return findHotelsById(List.of(id)).stream().findFirst();
+    }
+
+    public List<HotelView> findHotelsById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Hotel> hotels = hotelRepository.findWithRoomsByIdIn(ids);
+        fetchFacilities(hotels);
+        return hotels.stream().map(HotelView::from).toList();
+    }
+
+    public List<RoomView> findRoomsById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return roomRepository.findWithFacilitiesByIdIn(ids).stream().map(RoomView::from).toList();
+    }
+
+    /**
+     * Передаёт action каждый отель под фильтры; null в фильтре означает «любое значение».
+     * Номера и удобства отелей к этому моменту уже загружены — пачкой на каждые
+     * {@value #EXPORT_BATCH} отелей.
+     */
+    public void forEachHotel(String city, String category, Consumer<Hotel> action) {
+        try (Stream<Hotel> hotels = hotelRepository.streamHotels(city, category)) {
+            forEach(hotels, batch -> {
+                hotelRepository.findWithRoomsByIdIn(batch.stream().map(Hotel::getId).toList());
+                fetchFacilities(batch);
+            }, action);
+        }
+    }
+
+    public void forEachRoomWithFacility(String facilityId, Consumer<Room> action) {
+        try (Stream<Room> rooms = roomRepository.streamRoomsByFacilityId(facilityId)) {
+            forEach(rooms, batch -> roomRepository.findWithFacilitiesByIdIn(
+                    batch.stream().map(Room::getId).toList()), action);
+        }
+    }
+
+    // Соединение с удобствами заполняет их у номеров, уже загруженных в сессию
+    private void fetchFacilities(List<Hotel> hotels) {
+        List<String> withRooms = hotels.stream()
+                .filter(hotel -> !hotel.getRooms().isEmpty())
+                .map(Hotel::getId)
+                .toList();
+        if (!withRooms.isEmpty()) {
+            roomRepository.findWithFacilitiesByHotelIdIn(withRooms);
+        }
+    }
+
+    private <T> void forEach(Stream<T> rows, Consumer<List<T>> prefetch, Consumer<T> action) {
+        // Выгрузка не наполняет кэш второго уровня, а сессия очищается после каждой
+        // пачки строк курсора: память не растёт с размером выборки
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+        List<T> batch = new ArrayList<>(EXPORT_BATCH);
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() == EXPORT_BATCH || !iterator.hasNext()) {
+                prefetch.accept(batch);
+                batch.forEach(action);
+                batch.clear();
+                entityManager.clear();
+            }
+        }
+    }
+}
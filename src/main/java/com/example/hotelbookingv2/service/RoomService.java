@@ -1,6 +1,14 @@
 package com.example.hotelbookingv2.service;
 
+import com.example.hotelbookingv2.cache.AfterCommit;
+import com.example.hotelbookingv2.cache.FacilityCache;
+import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.cache.InvalidationBus;
+import com.example.hotelbookingv2.cache.NegativeCache;
 import com.example.hotelbookingv2.cache.RoomCache;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
 import com.example.hotelbookingv2.exception.AlreadyExistsException;
 import com.example.hotelbookingv2.exception.InvalidInputException;
 import com.example.hotelbookingv2.exception.ResourceNotFoundException;
@@ -8,12 +16,19 @@ import com.example.hotelbookingv2.model.Facility;
 import com.example.hotelbookingv2.model.Room;
 import com.example.hotelbookingv2.repository.FacilityRepository;
 import com.example.hotelbookingv2.repository.RoomRepository;
+import com.example.hotelbookingv2.view.KeysetPage;
+import com.example.hotelbookingv2.view.RoomView;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,47 +40,179 @@ public class RoomService {
     private final RoomRepository roomRepository;
     private final FacilityRepository facilityRepository;
     private final RoomCache roomCache;
+    private final NegativeCache negativeCache;
+    // Номера входят в ответ GET /hotels/{id} и в снимок отеля, поэтому их запись
+    // сбрасывает и то и другое
+    private final HotelResponseCache hotelResponseCache;
+    private final InvalidationBus invalidationBus;
+    private final FacilityCache facilityCache;
+    private final HotelCache hotelCache;
+    private final ReadModelLoader readModelLoader;
+    private final RoomFacilityIndex facilityIndex;
+    private final RoomPriceIndex priceIndex;
 
     @Autowired
     public RoomService(RoomRepository roomRepository, FacilityRepository facilityRepository,
-                           RoomCache roomCache) {
+                           RoomCache roomCache, NegativeCache negativeCache,
+                           HotelResponseCache hotelResponseCache,
+                           InvalidationBus invalidationBus, FacilityCache facilityCache,
+                           HotelCache hotelCache, ReadModelLoader readModelLoader,
+                           RoomFacilityIndex facilityIndex, RoomPriceIndex priceIndex) {
         this.roomRepository = roomRepository;
         this.facilityRepository = facilityRepository;
         this.roomCache = roomCache;
+        this.negativeCache = negativeCache;
+        this.hotelResponseCache = hotelResponseCache;
+        this.invalidationBus = invalidationBus;
+        this.facilityCache = facilityCache;
+        this.hotelCache = hotelCache;
+        this.readModelLoader = readModelLoader;
+        this.facilityIndex = facilityIndex;
+        this.priceIndex = priceIndex;
     }
 
-    public List<Room> findRoomsByHotel(String hotelId) {
+    public KeysetPage<RoomView> findRoomsByHotel(String hotelId, String cursor, int limit) {
         if (hotelId == null || hotelId.isBlank()) {
             throw new InvalidInputException("ID отеля не может быть пустым или равным null.");
         }
-        List<Room> rooms = roomRepository.findRoomsByHotel(hotelId);
-        if (rooms.isEmpty()) {
+        KeysetPage.checkLimit(limit);
+        String after = KeysetPage.after(cursor);
+        List<Room> rooms = roomRepository.findRoomsByHotel(hotelId, orFirst(after),
+                Limit.of(limit + 1));
+        if (rooms.isEmpty() && after == null) {
             throw new ResourceNotFoundException("Комнаты не найдены для отеля с ID: " + hotelId);
         }
-        return rooms;
+        return toPage(rooms, limit);
     }
 
-    public List<Room> findRoomsByFacility(String facilityName) {
+    public KeysetPage<RoomView> findRoomsByFacility(String facilityName, String cursor,
+                                                    int limit) {
         if (facilityName == null || facilityName.isBlank()) {
             throw new InvalidInputException("Название удобства не может"
                     + " быть пустым или равным null.");
         }
-        List<Room> rooms = roomRepository.findRoomsByFacility(facilityName);
-        if (rooms.isEmpty()) {
+        KeysetPage.checkLimit(limit);
+        String after = KeysetPage.after(cursor);
+        // Название переводится в id по справочнику: неизвестное удобство не идёт в базу,
+        // а запрос обходится без соединения с таблицей удобств
+        String facilityId = facilityCache.get(facilityRepository::findAll).idOf(facilityName);
+        List<Room> rooms = facilityId == null ? List.of()
+                : roomRepository.findRoomsByFacilityId(facilityId, orFirst(after),
+                        Limit.of(limit + 1));
+        if (rooms.isEmpty() && after == null) {
             throw new ResourceNotFoundException("Комнаты с удобством " + facilityName
                     + " не найдены.");
         }
-        return rooms;
+        return toPage(rooms, limit);
     }
 
-    public Room getRoomById(String id) {
-        Room room = roomCache.get(id);
-        if (room == null) {
-            room = roomRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Room not found"));
-            roomCache.put(id, room);  // Здесь обновляется кеш
+    /**
+     * Номера с набором удобств: ALL — со всеми сразу, ANY — хотя бы с одним. Выборку даёт
+     * индекс битовых карт без запроса в базу, снимки номеров берутся из кэша номеров,
+     * недостающие догружаются одним запросом по id. Порядок страниц — порядок индекса.
+     */
+    public KeysetPage<RoomView> searchByFacilities(List<String> facilityNames,
+                                                   RoomFacilityIndex.Match match,
+                                                   String cursor, int limit) {
+        if (facilityNames == null || facilityNames.isEmpty()
+                || facilityNames.stream().anyMatch(name -> name == null || name.isBlank())) {
+            throw new InvalidInputException("Список удобств не может быть пустым"
+                    + " или содержать пустые названия.");
         }
-        return room;
+        KeysetPage.checkLimit(limit);
+        String after = KeysetPage.after(cursor);
+        FacilityCache.Snapshot catalogue = facilityCache.get(facilityRepository::findAll);
+        Set<String> facilityIds = new LinkedHashSet<>();
+        for (String name : facilityNames) {
+            String facilityId = catalogue.idOf(name);
+            if (facilityId != null) {
+                facilityIds.add(facilityId);
+            } else if (match == RoomFacilityIndex.Match.ALL) {
+                return KeysetPage.of(List.of(), null);
+            }
+        }
+        RoomFacilityIndex.Page page;
+        try {
+            page = facilityIndex.find(facilityIds, match, after, limit,
+                    roomRepository::findFacilityEntries,
+                    roomRepository::findFacilityEntriesByRoomIdIn);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Некорректный курсор страницы");
+        }
+        Map<String, RoomView> rooms = views(page.roomIds());
+        // Номера удалённого вместе с отелем могли остаться в индексе: они пропускаются
+        // и перечитываются при следующем поиске
+        page.roomIds().stream().filter(id -> !rooms.containsKey(id))
+                .forEach(facilityIndex::invalidateRoom);
+        return KeysetPage.of(List.copyOf(rooms.values()), page.lastKey());
+    }
+
+    /**
+     * Номера в диапазоне цен, самые дешёвые первыми; тип и город необязательны. Выборку
+     * даёт индекс отсортированных цен без запроса в базу, первые limit номеров — это
+     * и есть limit самых дешёвых.
+     */
+    public KeysetPage<RoomView> searchByPrice(String city, String type, Double minPrice,
+                                              Double maxPrice, String cursor, int limit) {
+        double min = minPrice == null ? 0 : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        if (Double.isNaN(min) || Double.isNaN(max) || min < 0 || min > max) {
+            throw new InvalidInputException("Некорректный диапазон цен.");
+        }
+        KeysetPage.checkLimit(limit);
+        String after = KeysetPage.after(cursor);
+        RoomPriceIndex.Filter filter = new RoomPriceIndex.Filter(blankToNull(type),
+                blankToNull(city), min, max);
+        RoomPriceIndex.Page page;
+        try {
+            page = priceIndex.find(filter, after, limit, roomRepository::findPriceEntries,
+                    roomRepository::findPriceEntriesByRoomIdIn,
+                    roomRepository::findPriceEntriesByHotelIdIn);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Некорректный курсор страницы");
+        }
+        Map<String, RoomView> rooms = views(page.roomIds());
+        page.roomIds().stream().filter(id -> !rooms.containsKey(id))
+                .forEach(priceIndex::invalidateRoom);
+        return KeysetPage.of(List.copyOf(rooms.values()), page.lastKey());
+    }
+
+    // Снимки в порядке ids: из кэша номеров, недостающие — одним запросом
+    private Map<String, RoomView> views(List<String> ids) {
+        return roomCache.getAll(ids, missing -> readModelLoader.findRoomsById(missing).stream()
+                .collect(Collectors.toMap(RoomView::id, Function.identity())));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * Выгрузка всех номеров с удобством без страниц; action получает номера по одному,
+     * пока открыт курсор.
+     */
+    public void forEachRoomWithFacility(String facilityName, Consumer<Room> action) {
+        if (facilityName == null || facilityName.isBlank()) {
+            throw new InvalidInputException("Название удобства не может"
+                    + " быть пустым или равным null.");
+        }
+        String facilityId = facilityCache.get(facilityRepository::findAll).idOf(facilityName);
+        if (facilityId == null) {
+            throw new ResourceNotFoundException("Удобство " + facilityName + " не найдено.");
+        }
+        readModelLoader.forEachRoomWithFacility(facilityId, action);
+    }
+
+    public RoomView getRoomById(String id) {
+        return roomCache.get(id, key -> {
+            if (negativeCache.isMissing(NegativeCache.Kind.ROOM, key)) {
+                throw new ResourceNotFoundException("Room not found");
+            }
+            return roomRepository.findById(key).map(RoomView::from).orElseThrow(() -> {
+                negativeCache.markMissing(NegativeCache.Kind.ROOM, key);
+                return new ResourceNotFoundException("Room not found");
+            });
+        });
     }
 
 
@@ -87,7 +234,10 @@ public class RoomService {
         }
 
         Room savedRoom = roomRepository.save(room);
-        roomCache.put(savedRoom.getId(), savedRoom);
+        negativeCache.invalidate(NegativeCache.Kind.ROOM, savedRoom.getId());
+        // Снимок соберётся при следующем чтении: у удобств из запроса может не быть названий
+        evictRoom(savedRoom.getId());
+        invalidateHotelResponse(savedRoom);
         return savedRoom;
     }
 
@@ -97,11 +247,11 @@ public class RoomService {
         if (id == null || id.isBlank()) {
             throw new InvalidInputException("ID комнаты не может быть пустым или равным null.");
         }
-        if (!roomRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Комната с ID " + id + " не найдена.");
-        }
-        roomRepository.deleteById(id);
-        roomCache.remove(id);
+        Room room = roomRepository.findById(id).orElseThrow(
+                () -> new ResourceNotFoundException("Комната с ID " + id + " не найдена."));
+        roomRepository.delete(room);
+        evictRoom(id);
+        invalidateHotelResponse(room);
     }
 
     @Transactional
@@ -134,7 +284,8 @@ public class RoomService {
             }
 
             Room updated = roomRepository.save(room);
-            roomCache.put(updated.getId(), updated);
+            evictRoom(updated.getId());
+            invalidateHotelResponse(room);
             return updated;
         }).orElseThrow(() -> new ResourceNotFoundException("Комната с ID: " + id + " не найдена."));
     }
@@ -182,9 +333,41 @@ public class RoomService {
         }
 
         List<Room> savedRooms = roomRepository.saveAll(rooms);
-        savedRooms.forEach(room -> roomCache.put(room.getId(), room));
+        savedRooms.forEach(room -> {
+            negativeCache.invalidate(NegativeCache.Kind.ROOM, room.getId());
+            evictRoom(room.getId());
+            invalidateHotelResponse(room);
+        });
 
         return savedRooms;
     }
-}
 
+    // Снимок вытесняется после коммита: промах до него перечитал бы старую строку
+    // и положил её обратно в кэш до следующей записи номера
+    private void evictRoom(String id) {
+        AfterCommit.run(() -> roomCache.remove(id));
+    }
+
+    // Заодно сообщает об изменении номера остальным узлам: после коммита, одной пачкой
+    private void invalidateHotelResponse(Room room) {
+        String hotelId = room.getHotel() != null ? room.getHotel().getId() : null;
+        if (hotelId != null) {
+            AfterCommit.run(() -> hotelCache.removeHotel(hotelId));
+            hotelResponseCache.invalidate(hotelId);
+        }
+        facilityIndex.invalidateRoom(room.getId());
+        priceIndex.invalidateRoom(room.getId());
+        invalidationBus.roomChanged(room.getId(), hotelId);
+    }
+
+    // Пустая строка меньше любого id: с неё начинается первая страница
+    private static String orFirst(String after) {
+        return after == null ? "" : after;
+    }
+
+    // Запрос выбирает на один номер больше страницы: так видно, есть ли следующая
+    private static KeysetPage<RoomView> toPage(List<Room> rooms, int limit) {
+        List<RoomView> views = rooms.stream().limit(limit).map(RoomView::from).toList();
+        return KeysetPage.of(views, rooms.size() > limit ? views.get(limit - 1).id() : null);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.hotelbookingv2.view;
+
+import com.example.hotelbookingv2.model.Facility;
+
+public record FacilityView(String id, String name) {
+
+    public static FacilityView from(Facility facility) {
+        return new FacilityView(facility.getId(), facility.getName());
+    }
+}
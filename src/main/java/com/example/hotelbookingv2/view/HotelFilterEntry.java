@@ -0,0 +1,8 @@
+package com.example.hotelbookingv2.view;
+
+/**
+ * Атрибуты отеля, по которым строится индекс фильтров. Из базы читается проекцией —
+ * только эти столбцы.
+ */
+public record HotelFilterEntry(String id, String city, String category) {
+}
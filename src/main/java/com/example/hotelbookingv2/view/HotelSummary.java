@@ -0,0 +1,14 @@
+package com.example.hotelbookingv2.view;
+
+/**
+ * Краткие сведения об отеле для списков: без номеров и удобств. Из базы читается
+ * проекцией — только эти столбцы, без сущностей в сессии.
+ */
+public record HotelSummary(String id, String name, String city, String category,
+                           String availableFromDate) {
+
+    public static HotelSummary from(HotelView hotel) {
+        return new HotelSummary(hotel.id(), hotel.name(), hotel.city(), hotel.category(),
+                hotel.availableFromDate());
+    }
+}
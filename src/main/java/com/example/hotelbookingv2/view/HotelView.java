@@ -0,0 +1,30 @@
+package com.example.hotelbookingv2.view;
+
+import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.model.Room;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок отеля с номерами и их удобствами — ровно то, что отдаёт
+ * {@code GET /hotels/{id}}. Собирается один раз при загрузке в кэш.
+ */
+public record HotelView(String id, String name, String city, String category,
+                        String availableFromDate, List<RoomView> rooms) {
+
+    public HotelView {
+        rooms = List.copyOf(rooms);
+    }
+
+    /**
+     * Снимок отеля; ленивые номера и удобства дочитываются, поэтому вызывать внутри транзакции.
+     */
+    public static HotelView from(Hotel hotel) {
+        List<RoomView> rooms = new ArrayList<>(hotel.getRooms().size());
+        for (Room room : hotel.getRooms()) {
+            rooms.add(RoomView.from(room, hotel.getId()));
+        }
+        return new HotelView(hotel.getId(), hotel.getName(), hotel.getCity(),
+                hotel.getCategory(), hotel.getAvailableFromDate(), rooms);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.hotelbookingv2.view;
+
+import com.example.hotelbookingv2.exception.InvalidInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Страница списка при постраничном чтении по ключу. Элементы упорядочены по id, курсор —
+ * закодированный id последнего элемента страницы: следующая страница начинается строго
+ * после него, так что глубокие страницы стоят столько же, сколько первая, а вставки и
+ * удаления между запросами не сдвигают и не дублируют элементы. На последней странице
+ * курсора нет.
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    public KeysetPage {
+        items = List.copyOf(items);
+    }
+
+    /**
+     * Страница с курсором на lastKey; null — страница последняя.
+     */
+    public static <T> KeysetPage<T> of(List<T> items, String lastKey) {
+        return new KeysetPage<>(items, lastKey == null ? null : Base64.getUrlEncoder()
+                .withoutPadding().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Ключ, после которого начинается страница; для первой страницы (курсора нет) — null.
+     */
+    public static String after(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Некорректный курсор страницы");
+        }
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidInputException("Размер страницы должен быть от 1 до " + MAX_LIMIT);
+        }
+    }
+
+    /**
+     * Ответ API: тело — элементы страницы, курсор следующей — в заголовке,
+     * так что формат тела не меняется.
+     */
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(items);
+    }
+}
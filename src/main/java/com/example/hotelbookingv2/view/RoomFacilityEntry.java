@@ -0,0 +1,8 @@
+package com.example.hotelbookingv2.view;
+
+/**
+ * Связь номера с удобством, из которых строится индекс поиска по удобствам. Из базы
+ * читается проекцией — только пара id.
+ */
+public record RoomFacilityEntry(String roomId, String facilityId) {
+}
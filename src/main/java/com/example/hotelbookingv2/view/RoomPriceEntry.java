@@ -0,0 +1,9 @@
+package com.example.hotelbookingv2.view;
+
+/**
+ * Номер с типом и ценой и город его отеля, из которых строится индекс поиска по цене.
+ * Из базы читается проекцией — только эти столбцы.
+ */
+public record RoomPriceEntry(String roomId, String type, Double price, String hotelId,
+                             String city) {
+}
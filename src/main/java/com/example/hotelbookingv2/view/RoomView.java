@@ -0,0 +1,35 @@
+package com.example.hotelbookingv2.view;
+
+import com.example.hotelbookingv2.model.Facility;
+import com.example.hotelbookingv2.model.Room;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок номера для кэшей и ответов API. От отеля остаётся только id,
+ * удобства — парами id и название, так что снимок не держит ни сессию, ни граф сущностей,
+ * и чтение из кэша никогда не обращается к базе.
+ */
+public record RoomView(String id, String roomNumber, String type, Double price,
+                       String hotelId, List<FacilityView> facilities) {
+
+    public RoomView {
+        facilities = List.copyOf(facilities);
+    }
+
+    /**
+     * Снимок номера; ленивые удобства дочитываются, поэтому вызывать внутри транзакции.
+     */
+    public static RoomView from(Room room) {
+        return from(room, room.getHotel() == null ? null : room.getHotel().getId());
+    }
+
+    static RoomView from(Room room, String hotelId) {
+        List<FacilityView> facilities = new ArrayList<>(room.getFacilities().size());
+        for (Facility facility : room.getFacilities()) {
+            facilities.add(FacilityView.from(facility));
+        }
+        return new RoomView(room.getId(), room.getRoomNumber(), room.getType(), room.getPrice(),
+                hotelId, facilities);
+    }
+}
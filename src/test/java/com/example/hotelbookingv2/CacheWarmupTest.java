@@ -0,0 +1,89 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.CacheWarmer;
+import com.example.hotelbookingv2.cache.CacheWarmup;
+import com.example.hotelbookingv2.cache.LfuCache;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheWarmupTest {
+
+    @TempDir
+    Path directory;
+
+    private CacheWarmup warmup(List<CacheWarmer> warmers, int topKeys, Duration budget) {
+        return new CacheWarmup(warmers, directory.resolve("hot-keys.txt"), topKeys, 2, 2, budget);
+    }
+
+    @Test
+    void hottestKeysSurviveRestart() {
+        LfuCache<String> before = new LfuCache<>(10);
+        for (int i = 0; i < 10; i++) {
+            before.put("k" + i, "v" + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            before.get("k7");
+            before.get("k3");
+        }
+        before.get("k3");
+        CacheWarmup first = warmup(List.of(new CacheWarmer(before, keys -> { })), 2,
+                Duration.ofSeconds(5));
+        first.warmUp();
+        first.saveSnapshot();
+
+        LfuCache<String> after = new LfuCache<>(10);
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        warmup(List.of(new CacheWarmer(after, keys -> {
+            batches.add(keys);
+            keys.forEach(key -> after.put(key, "loaded"));
+        })), 2, Duration.ofSeconds(5)).warmUp();
+
+        assertEquals(List.of(List.of("k3", "k7")), batches);
+        assertEquals(2, after.size());
+    }
+
+    @Test
+    void snapshotIsNotWrittenBeforeWarmUp() {
+        LfuCache<String> cache = new LfuCache<>(10);
+        cache.put("k", "v");
+
+        warmup(List.of(new CacheWarmer(cache, keys -> { })), 10, Duration.ofSeconds(5))
+                .saveSnapshot();
+
+        assertFalse(Files.exists(directory.resolve("hot-keys.txt")));
+    }
+
+    @Test
+    void warmUpStopsAtTimeBudget() throws Exception {
+        LfuCache<String> cache = new LfuCache<>(100);
+        for (int i = 0; i < 20; i++) {
+            cache.put("k" + i, "v");
+        }
+        CacheWarmup first = warmup(List.of(new CacheWarmer(cache, keys -> { })), 20,
+                Duration.ofSeconds(5));
+        first.warmUp();
+        first.saveSnapshot();
+
+        CacheWarmup slow = warmup(List.of(new CacheWarmer(new LfuCache<String>(100), keys -> {
+            try {
+                TimeUnit.SECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })), 20, Duration.ofMillis(200));
+        long start = System.nanoTime();
+        slow.warmUp();
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+}
@@ -1,24 +1,40 @@
 package com.example.hotelbookingv2;
 
+import com.example.hotelbookingv2.cache.FacilityCache;
+import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.cache.InvalidationBus;
+import com.example.hotelbookingv2.cache.RoomCache;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
 import com.example.hotelbookingv2.dto.FacilityDto;
 import com.example.hotelbookingv2.exception.AlreadyExistsException;
 import com.example.hotelbookingv2.exception.InvalidInputException;
 import com.example.hotelbookingv2.exception.ResourceNotFoundException;
 import com.example.hotelbookingv2.model.Facility;
+import com.example.hotelbookingv2.model.Hotel;
 import com.example.hotelbookingv2.model.Room;
 import com.example.hotelbookingv2.repository.FacilityRepository;
 import com.example.hotelbookingv2.repository.RoomRepository;
 import com.example.hotelbookingv2.service.FacilityService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.mockito.ArgumentMatchers.any;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +49,31 @@ class FacilityServiceTest {
     @Mock
     private RoomRepository roomRepository;
 
+    @Spy
+    private FacilityCache facilityCache = new FacilityCache();
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    @Mock
+    private RoomCache roomCache;
+
+    @Mock
+    private HotelCache hotelCache;
+
+    @Mock
+    private HotelResponseCache hotelResponseCache;
+
+    @Mock
+    private RoomFacilityIndex facilityIndex;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     void createFacility_success() {
         FacilityDto facilityDto = new FacilityDto();
@@ -77,23 +118,85 @@ class FacilityServiceTest {
         facility.setId("1");
         facility.setName("Wi-Fi");
 
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.of(facility));
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(facility));
 
         FacilityDto result = facilityService.getFacilityById("1");
 
         Assertions.assertNotNull(result);
         Assertions.assertEquals("1", result.getId());
         Assertions.assertEquals("Wi-Fi", result.getName());
-        Mockito.verify(facilityRepository).findById("1");
+        Mockito.verify(facilityRepository, Mockito.never()).findById(any());
     }
 
     @Test
     void getFacilityById_notFound() {
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.empty());
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> facilityService.getFacilityById("1"));
     }
 
+    @Test
+    void getFacilityById_catalogueLoadedOnce() {
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(new Facility("1", "Wi-Fi")));
+
+        facilityService.getFacilityById("1");
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> facilityService.getFacilityById("2"));
+        facilityService.getAllFacilities();
+
+        Mockito.verify(facilityRepository).findAll();
+    }
+
+    @Test
+    void facilityCache_putDuringLoad_isNeverLost() throws Exception {
+        FacilityCache cache = new FacilityCache();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                List<Facility> database = new CopyOnWriteArrayList<>(
+                        List.of(new Facility("1", "Wi-Fi")));
+                Facility added = new Facility("new-" + i, "AC-" + i);
+                cache.clear();
+                CyclicBarrier start = new CyclicBarrier(2);
+
+                // Запись может прийти в любой момент загрузки, в том числе между
+                // окончанием чтения из базы и установкой снимка
+                Future<?> load = pool.submit(() -> {
+                    start.await();
+                    return cache.get(() -> List.copyOf(database));
+                });
+                Future<?> write = pool.submit(() -> {
+                    start.await();
+                    database.add(added);
+                    cache.put(added);
+                    return null;
+                });
+                load.get();
+                write.get();
+
+                Assertions.assertEquals(added.getId(),
+                        cache.get(() -> List.copyOf(database)).idOf(added.getName()));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void createFacility_visibleWithoutReload() {
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(new Facility("1", "Wi-Fi")));
+        Mockito.when(facilityRepository.save(any(Facility.class))).thenReturn(new Facility("2", "AC"));
+        facilityService.getAllFacilities();
+
+        FacilityDto created = new FacilityDto();
+        created.setName("AC");
+        facilityService.createFacility(created);
+
+        Assertions.assertEquals("AC", facilityService.getFacilityById("2").getName());
+        Assertions.assertEquals("2", facilityCache.get(List::of).idOf("AC"));
+        Mockito.verify(facilityRepository).findAll();
+        Mockito.verify(invalidationBus).facilityChanged("2");
+    }
+
     @Test
     void getFacilityById_nullId() {
         Assertions.assertThrows(InvalidInputException.class, () -> facilityService.getFacilityById(null));
@@ -141,6 +244,10 @@ class FacilityServiceTest {
         Assertions.assertEquals("Premium Wi-Fi", result.getName());
         Mockito.verify(facilityRepository).findById("1");
         Mockito.verify(facilityRepository).save(existingFacility);
+        // Старое название осталось в снимках номеров и отелей
+        Mockito.verify(roomCache).clear();
+        Mockito.verify(hotelCache).clearHotels();
+        Mockito.verify(hotelResponseCache).clear();
     }
 
     @Test
@@ -175,6 +282,25 @@ class FacilityServiceTest {
         Assertions.assertThrows(InvalidInputException.class, () -> facilityService.updateFacility(null, updateDto));
     }
 
+    @Test
+    void addFacilityToRoom_evictsRoomAndHotelSnapshots() {
+        Hotel hotel = new Hotel();
+        hotel.setId("hotel-1");
+        Room room = new Room();
+        room.setId("1");
+        room.setHotel(hotel);
+
+        Mockito.when(roomRepository.findById("1")).thenReturn(Optional.of(room));
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(new Facility("1", "Wi-Fi")));
+
+        facilityService.addFacilityToRoom("1", "1");
+
+        Mockito.verify(roomCache).remove("1");
+        Mockito.verify(hotelCache).removeHotel("hotel-1");
+        Mockito.verify(hotelResponseCache).invalidate("hotel-1");
+        Mockito.verify(invalidationBus).roomChanged("1", "hotel-1");
+    }
+
     @Test
     void addFacilityToRoom_success() {
         Room room = new Room();
@@ -185,13 +311,17 @@ class FacilityServiceTest {
         facility.setName("Wi-Fi");
 
         Mockito.when(roomRepository.findById("1")).thenReturn(Optional.of(room));
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.of(facility));
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(facility));
+        Mockito.when(facilityRepository.getReferenceById("1")).thenReturn(facility);
 
         facilityService.addFacilityToRoom("1", "1");
 
         Mockito.verify(roomRepository).findById("1");
-        Mockito.verify(facilityRepository).findById("1");
+        Mockito.verify(facilityRepository, Mockito.never()).findById(any());
         Mockito.verify(roomRepository).save(room);
+        Assertions.assertEquals(List.of(facility), room.getFacilities());
+        Mockito.verify(facilityIndex).add("1", "1");
+        Mockito.verify(invalidationBus).roomChanged("1", null);
     }
 
     @Test
@@ -208,7 +338,7 @@ class FacilityServiceTest {
 
         // Мокируем возвращение комнаты и оборудования
         Mockito.when(roomRepository.findById("1")).thenReturn(Optional.of(room));
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.of(facility));
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(facility));
 
         // Проверяем, что выбрасывается исключение
         Assertions.assertThrows(AlreadyExistsException.class, () -> facilityService.addFacilityToRoom("1", "1"));
@@ -244,11 +374,13 @@ class FacilityServiceTest {
         room.addFacility(facility);
 
         Mockito.when(roomRepository.findById("1")).thenReturn(Optional.of(room));
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.of(facility));
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(facility));
 
         facilityService.removeFacilityFromRoom("1", "1");
 
         Mockito.verify(roomRepository).save(room);
+        Mockito.verify(facilityIndex).remove("1", "1");
+        Assertions.assertTrue(room.getFacilities().isEmpty());
     }
 
     @Test
@@ -257,7 +389,7 @@ class FacilityServiceTest {
         room.setId("1");
 
         Mockito.when(roomRepository.findById("1")).thenReturn(Optional.of(room));
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.empty());
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> facilityService.removeFacilityFromRoom("1", "1"));
     }
@@ -282,6 +414,30 @@ class FacilityServiceTest {
         facilityService.deleteFacility("1");
 
         Mockito.verify(facilityRepository).delete(facility);
+        Mockito.verify(facilityCache).remove("1");
+        Mockito.verify(invalidationBus).facilityChanged("1");
+    }
+
+    @Test
+    void deleteFacility_inTransaction_keepsCatalogueUntilCommit() {
+        Facility facility = new Facility("1", "Wi-Fi");
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of(facility));
+        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.of(facility));
+        facilityService.getAllFacilities();
+        TransactionSynchronizationManager.initSynchronization();
+
+        facilityService.deleteFacility("1");
+
+        // Коммит ещё может не пройти: удобство остаётся в справочнике и снимках
+        Assertions.assertEquals("Wi-Fi", facilityService.getFacilityById("1").getName());
+        Mockito.verify(roomCache, Mockito.never()).clear();
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        Assertions.assertThrows(ResourceNotFoundException.class,
+                () -> facilityService.getFacilityById("1"));
+        Mockito.verify(roomCache).clear();
     }
 
     @Test
@@ -312,6 +468,7 @@ class FacilityServiceTest {
         Assertions.assertNotNull(saved);
         Assertions.assertEquals("1", saved.getId());
         Mockito.verify(facilityRepository).save(facility);
+        Mockito.verify(facilityCache).put(savedFacility);
     }
 
     @Test
@@ -381,7 +538,7 @@ class FacilityServiceTest {
         room.setId("1");
 
         Mockito.when(roomRepository.findById("1")).thenReturn(Optional.of(room));
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.empty());
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> facilityService.removeFacilityFromRoom("1", "1"));
     }
@@ -392,7 +549,7 @@ class FacilityServiceTest {
         room.setId("1");
 
         Mockito.when(roomRepository.findById("1")).thenReturn(Optional.of(room));
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.empty());
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> facilityService.addFacilityToRoom("1", "1"));
     }
@@ -531,7 +688,7 @@ class FacilityServiceTest {
 
     @Test
     void getFacilityById_notFound_POM() {
-        Mockito.when(facilityRepository.findById("1")).thenReturn(Optional.empty());
+        Mockito.when(facilityRepository.findAll()).thenReturn(List.of());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> facilityService.getFacilityById("1"));
     }
@@ -0,0 +1,184 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.dto.FacilityDto;
+import com.example.hotelbookingv2.dto.HotelDto;
+import com.example.hotelbookingv2.mapper.HotelMapper;
+import com.example.hotelbookingv2.model.Facility;
+import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.model.Room;
+import com.example.hotelbookingv2.repository.FacilityRepository;
+import com.example.hotelbookingv2.repository.HotelRepository;
+import com.example.hotelbookingv2.repository.RoomRepository;
+import com.example.hotelbookingv2.service.ReadModelLoader;
+import com.example.hotelbookingv2.view.HotelSummary;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.KeysetPage;
+import com.example.hotelbookingv2.view.RoomView;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Число SQL-запросов на чтение графа «отель — номера — удобства» для списка из 100 отелей
+ * и на страницы их номеров, а также на краткий список тех же отелей.
+ * Кэш второго уровня перед каждым чтением сбрасывается, так что считаются запросы к базе.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ReadModelLoader.class, HotelMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GraphLoadingTest {
+
+    private static final int HOTELS = 100;
+    private static final int ROOMS_PER_HOTEL = 3;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private ReadModelLoader loader;
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SessionFactory sessionFactory;
+    private List<String> hotelIds;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        inTransaction(() -> {
+            roomRepository.deleteAll();
+            hotelRepository.deleteAll();
+            facilityRepository.deleteAll();
+            return null;
+        });
+        hotelIds = inTransaction(() -> {
+            List<Facility> facilities = facilityRepository.saveAll(List.of(
+                    new Facility(null, "Wi-Fi"), new Facility(null, "Бассейн")));
+            List<Hotel> hotels = new ArrayList<>();
+            for (int i = 0; i < HOTELS; i++) {
+                Hotel hotel = new Hotel(null, "Hotel " + i, "Paris", "Luxury", "2025-01-01");
+                for (int j = 0; j < ROOMS_PER_HOTEL; j++) {
+                    Room room = new Room();
+                    room.setRoomNumber("10" + j);
+                    room.setType("Deluxe");
+                    room.setPrice(100.0);
+                    room.setHotel(hotel);
+                    room.getFacilities().addAll(facilities);
+                    hotel.getRooms().add(room);
+                }
+                hotels.add(hotel);
+            }
+            return hotelRepository.saveAll(hotels).stream().map(Hotel::getId).toList();
+        });
+    }
+
+    @Test
+    void hotelListingLoadsGraphInTwoQueries() {
+        List<HotelView> hotels = new ArrayList<>();
+
+        long statements = statements(() -> hotels.addAll(loader.findHotelsById(hotelIds)));
+
+        assertEquals(2, statements);
+        assertEquals(HOTELS, hotels.size());
+        hotels.forEach(hotel -> {
+            assertEquals(ROOMS_PER_HOTEL, hotel.rooms().size());
+            hotel.rooms().forEach(room -> assertEquals(2, room.facilities().size()));
+        });
+    }
+
+    @Test
+    void exportThroughMapperLoadsGraphPerBatch() {
+        List<HotelDto> hotels = new ArrayList<>();
+
+        long statements = statements(() -> {
+            loader.forEachHotel("Paris", null,
+                    hotel -> hotels.add(hotelMapper.convertToDto(hotel)));
+            return null;
+        });
+
+        // Курсор по отелям и два запроса на пачку: номера и удобства
+        assertEquals(3, statements);
+        assertEquals(HOTELS, hotels.size());
+        hotels.forEach(hotel -> hotel.getRooms().forEach(room ->
+                assertEquals(List.of("Wi-Fi", "Бассейн"), room.getFacilities().stream()
+                        .map(FacilityDto::getName).sorted().toList())));
+    }
+
+    @Test
+    void roomsByIdLoadFacilitiesInOneQuery() {
+        List<String> roomIds = inTransaction(() -> roomRepository.findAll().stream()
+                .map(Room::getId).toList());
+
+        long statements = statements(() -> loader.findRoomsById(roomIds).stream()
+                .mapToInt(room -> room.facilities().size()).sum());
+
+        assertEquals(1, statements);
+    }
+
+    @Test
+    void roomPagesLoadFacilitiesInOneBatch() {
+        String facilityId = inTransaction(() -> facilityRepository.findAll().get(0).getId());
+        Limit page = Limit.of(KeysetPage.MAX_LIMIT + 1);
+
+        long byHotel = statements(() -> roomRepository
+                .findRoomsByHotel(hotelIds.get(0), "", page).stream().map(RoomView::from).toList());
+        long byFacility = statements(() -> roomRepository
+                .findRoomsByFacilityId(facilityId, "", page).stream().map(RoomView::from).toList());
+
+        // Страница номеров и один запрос IN за удобствами всех номеров страницы
+        assertEquals(2, byHotel);
+        assertEquals(2, byFacility);
+    }
+
+    @Test
+    void summariesReadColumnsWithoutEntities() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<HotelSummary> summaries = new ArrayList<>();
+
+        long statements = statements(() -> summaries.addAll(
+                hotelRepository.findSummariesByIdIn(hotelIds)));
+
+        assertEquals(1, statements);
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(HOTELS, summaries.size());
+    }
+
+    private long statements(Supplier<?> read) {
+        sessionFactory.getCache().evictAllRegions();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        inTransaction(read);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+}
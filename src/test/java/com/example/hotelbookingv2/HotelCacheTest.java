@@ -0,0 +1,220 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.CachePolicy;
+import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelEntityCache;
+import com.example.hotelbookingv2.view.HotelSummary;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.KeysetPage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HotelCacheTest {
+
+    private HotelEntityCache entities;
+    private HotelCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        entities = new HotelEntityCache(1000, CachePolicy.LFU, null, DataSize.ofBytes(0));
+        cache = new HotelCache(1000, CachePolicy.LFU, null, null, Runnable::run, entities);
+        cache.putHotel(hotel("Paris", "Luxury"));
+        loads = new AtomicInteger();
+    }
+
+    private Supplier<List<String>> query() {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of("Paris-Luxury");
+        };
+    }
+
+    private static List<HotelView> notExpected(Collection<String> ids) {
+        throw new AssertionError("Отели должны браться из кэша отелей");
+    }
+
+    private static HotelView hotel(String city, String category) {
+        return hotel(city, category, null);
+    }
+
+    private static HotelView hotel(String city, String category, String name) {
+        return new HotelView(city + "-" + category, name, city, category, null, List.of());
+    }
+
+    private void warmUp() {
+        cache.getPage("Paris", "Luxury", null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage("Paris", null, null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage(null, "Luxury", null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage(null, null, null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage("Paris", "Budget", null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage("London", null, null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage(null, "Budget", null, 100, query(), HotelCacheTest::notExpected);
+        loads.set(0);
+    }
+
+    @Test
+    void invalidateQueries_evictsOnlyMatchingQueries() {
+        warmUp();
+
+        cache.invalidateQueries("Paris", "Luxury");
+
+        // Выборки Paris:Budget, London:* и *:Budget не содержат отель и остаются в кэше
+        assertEquals(3, cache.size());
+        cache.getPage("Paris", "Budget", null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage("London", null, null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage(null, "Budget", null, 100, query(), HotelCacheTest::notExpected);
+        assertEquals(0, loads.get());
+        cache.getPage("Paris", "Luxury", null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage("Paris", null, null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage(null, "Luxury", null, 100, query(), HotelCacheTest::notExpected);
+        cache.getPage(null, null, null, 100, query(), HotelCacheTest::notExpected);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void invalidateQueries_keepsHotelEntries() {
+        HotelView hotel = hotel("Paris", "Standard");
+        cache.putHotel(hotel);
+        warmUp();
+
+        cache.invalidateQueries("Paris", "Luxury");
+
+        assertEquals(hotel, cache.getHotel(hotel.id(), id -> {
+            throw new AssertionError("Отель должен остаться в кэше");
+        }));
+    }
+
+    @Test
+    void invalidateQueries_afterEvictionDoesNotTouchReloadedKeys() {
+        warmUp();
+        cache.clear();
+        cache.getPage("London", null, null, 100, query(), HotelCacheTest::notExpected);
+        loads.set(0);
+
+        cache.invalidateQueries("Paris", "Luxury");
+        cache.getPage("London", null, null, 100, query(), HotelCacheTest::notExpected);
+
+        assertEquals(0, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void invalidateQueries_duringLoad_discardsLoadedIds() {
+        Supplier<List<String>> racing = () -> {
+            loads.incrementAndGet();
+            cache.invalidateQueries("Paris", "Luxury");
+            return List.of();
+        };
+
+        cache.getPage("Paris", null, null, 100, racing, HotelCacheTest::notExpected);
+        cache.getPage("Paris", null, null, 100, query(), HotelCacheTest::notExpected);
+
+        // Выборка, прочитанная до записи отеля, в кэше не осталась
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void hotelIdDoesNotCollideWithQueryKey() {
+        cache.getPage("Paris", null, null, 100, query(), HotelCacheTest::notExpected);
+
+        HotelView hotel = cache.getHotel("Paris:null", id -> hotel("Nice", "Budget"));
+
+        assertEquals("Nice", hotel.city());
+    }
+
+    @Test
+    void getPage_storesIdsAndSharesHotelSnapshots() {
+        List<HotelView> first = cache.getPage("Paris", null, null, 100, query(),
+                HotelCacheTest::notExpected).items();
+        cache.putHotel(hotel("Paris", "Luxury", "Renamed"));
+
+        List<HotelView> second = cache.getPage("Paris", null, null, 100, query(),
+                HotelCacheTest::notExpected).items();
+
+        assertEquals(1, first.size());
+        assertEquals(1, cache.weightedSize());
+        assertEquals(1, entities.size());
+        assertEquals("Renamed", second.get(0).name());
+    }
+
+    @Test
+    void getPage_reloadsMissingHotelsInOneBatch() {
+        cache.getPage("Paris", null, null, 100, () -> List.of("Paris-Luxury", "Paris-Budget"),
+                ids -> List.of(hotel("Paris", "Budget")));
+        entities.clear();
+        List<Collection<String>> batches = new ArrayList<>();
+
+        List<HotelView> hotels = cache.getPage("Paris", null, null, 100, query(), ids -> {
+            batches.add(List.copyOf(ids));
+            return List.of(hotel("Paris", "Budget"));
+        }).items();
+
+        // Выборка хранится отсортированной по id
+        assertEquals(List.of(List.of("Paris-Budget", "Paris-Luxury")), batches);
+        // Отель, удалённый из базы, из выборки пропадает
+        assertEquals(1, hotels.size());
+        assertEquals("Budget", hotels.get(0).category());
+    }
+
+    @Test
+    void getPage_walksSortedIdsByCursor() {
+        List<String> ids = List.of("h-5", "h-2", "h-4", "h-1", "h-3");
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<HotelView> page = cache.getPage(null, "Budget", KeysetPage.after(cursor),
+                    2, () -> ids, HotelCacheTest::budget);
+            page.items().forEach(hotel -> seen.add(hotel.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of("h-1", "h-2", "h-3", "h-4", "h-5"), seen);
+    }
+
+    @Test
+    void getPage_startsAfterRemovedCursorHotel() {
+        Supplier<List<String>> ids = () -> List.of("h-1", "h-3", "h-4");
+        cache.getPage(null, "Budget", null, 2, ids, HotelCacheTest::budget);
+
+        // h-2 был последним на странице, но отель удалили: страница начинается со следующего
+        KeysetPage<HotelView> page = cache.getPage(null, "Budget", "h-2", 2, ids,
+                HotelCacheTest::budget);
+
+        assertEquals(List.of("h-3", "h-4"), page.items().stream().map(HotelView::id).toList());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getSummaryPage_reusesCachedSnapshotsAndProjectsTheRest() {
+        List<Collection<String>> projected = new ArrayList<>();
+
+        KeysetPage<HotelSummary> page = cache.getSummaryPage("Paris", null, null, 10,
+                () -> List.of("Paris-Luxury", "Paris-Budget"), ids -> {
+                    projected.add(List.copyOf(ids));
+                    return List.of(new HotelSummary("Paris-Budget", "Ibis", "Paris", "Budget",
+                            null));
+                });
+
+        assertEquals(List.of(List.of("Paris-Budget")), projected);
+        assertEquals(List.of("Paris-Budget", "Paris-Luxury"),
+                page.items().stream().map(HotelSummary::id).toList());
+        // Проекция в кэш полных снимков не попадает
+        assertEquals(1, entities.size());
+    }
+
+    private static List<HotelView> budget(Collection<String> ids) {
+        return ids.stream()
+                .map(id -> new HotelView(id, null, "Paris", "Budget", null, List.of()))
+                .toList();
+    }
+}
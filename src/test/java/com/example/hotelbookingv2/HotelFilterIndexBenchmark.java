@@ -0,0 +1,55 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.HotelFilterIndex;
+import com.example.hotelbookingv2.view.HotelFilterEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Запуск: mvn test -Dtest=HotelFilterIndexBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HotelFilterIndexBenchmark {
+
+    private static final int HOTELS = 1_000_000;
+    private static final int CITIES = 500;
+    private static final int CATEGORIES = 5;
+    private static final int QUERIES = 20_000;
+
+    @Test
+    void filterLatencyAtOneMillionHotels() {
+        List<HotelFilterEntry> entries = new ArrayList<>(HOTELS);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < HOTELS; i++) {
+            entries.add(new HotelFilterEntry("hotel-" + i, "city-" + random.nextInt(CITIES),
+                    String.valueOf(1 + random.nextInt(CATEGORIES))));
+        }
+        HotelFilterIndex index = new HotelFilterIndex();
+        long buildStart = System.nanoTime();
+        index.find(null, null, () -> entries);
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        report("city", () -> index.find("city-" + random.nextInt(CITIES), null, List::of));
+        report("category", () -> index.find(null,
+                String.valueOf(1 + random.nextInt(CATEGORIES)), List::of));
+        report("city + category", () -> index.find("city-" + random.nextInt(CITIES),
+                String.valueOf(1 + random.nextInt(CATEGORIES)), List::of));
+        System.out.printf("build: %,d hotels in %d ms%n", index.size(), buildMillis);
+    }
+
+    private static void report(String name, Supplier<List<String>> query) {
+        for (int i = 0; i < QUERIES / 10; i++) {
+            query.get();
+        }
+        long found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            found += query.get().size();
+        }
+        long nanos = (System.nanoTime() - start) / QUERIES;
+        System.out.printf("%-16s %,8d ns/query, %,d hotels per result%n",
+                name, nanos, found / QUERIES);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.HotelFilterIndex;
+import com.example.hotelbookingv2.view.HotelFilterEntry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HotelFilterIndexTest {
+
+    private HotelFilterIndex index;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        index = new HotelFilterIndex();
+        loads = new AtomicInteger();
+    }
+
+    private Supplier<List<HotelFilterEntry>> entries() {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(
+                    new HotelFilterEntry("h1", "Paris", "Luxury"),
+                    new HotelFilterEntry("h2", "Paris", "Budget"),
+                    new HotelFilterEntry("h3", "London", "Luxury"),
+                    new HotelFilterEntry("h4", null, "Budget"));
+        };
+    }
+
+    @Test
+    void find_intersectsFilters() {
+        assertEquals(List.of("h1"), index.find("Paris", "Luxury", entries()));
+        assertEquals(List.of("h1", "h2"), index.find("Paris", null, entries()));
+        assertEquals(List.of("h2", "h4"), index.find(null, "Budget", entries()));
+        assertEquals(List.of("h1", "h2", "h3", "h4"), index.find(null, null, entries()));
+        assertEquals(List.of(), index.find("London", "Budget", entries()));
+        assertEquals(List.of(), index.find("Rome", null, entries()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void putDuringBuild_isNeverLost() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                List<HotelFilterEntry> database = new CopyOnWriteArrayList<>(List.of(
+                        new HotelFilterEntry("h1", "Paris", "Luxury")));
+                Supplier<List<HotelFilterEntry>> read = () -> List.copyOf(database);
+                String id = "new-" + i;
+                index.clear();
+                CyclicBarrier start = new CyclicBarrier(2);
+
+                // Запись может прийти в любой момент построения, в том числе между
+                // окончанием чтения из базы и установкой индекса
+                Future<?> build = pool.submit(() -> {
+                    start.await();
+                    return index.find(null, null, read);
+                });
+                Future<?> write = pool.submit(() -> {
+                    start.await();
+                    database.add(new HotelFilterEntry(id, "Paris", "Luxury"));
+                    index.put(id, "Paris", "Luxury");
+                    return null;
+                });
+                build.get();
+                write.get();
+
+                assertEquals(List.of("h1", id), index.find("Paris", "Luxury", read));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void put_movesHotelBetweenBitmaps() {
+        index.find(null, null, entries());
+
+        index.put("h1", "London", "Luxury");
+        index.put("h5", "Paris", "Luxury");
+
+        assertEquals(List.of("h1", "h3"), index.find("London", "Luxury", entries()));
+        assertEquals(List.of("h5"), index.find("Paris", "Luxury", entries()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void remove_freesOrdinalForNextHotel() {
+        index.find(null, null, entries());
+
+        index.remove("h2");
+        index.put("h5", "Rome", "Budget");
+
+        assertEquals(List.of(), index.find("Paris", "Budget", entries()));
+        // Свободный номер h2 достался h5
+        assertEquals(List.of("h1", "h5", "h3", "h4"), index.find(null, null, entries()));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void writeDuringLoad_isNotLostFromIndex() {
+        index.find(null, null, () -> {
+            index.put("h1", "Rome", "Luxury");
+            return entries().get();
+        });
+
+        // Индекс, загруженный до записи, не установлен: следующая выборка строит его заново
+        assertEquals(0, index.size());
+        index.find(null, null, entries());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void clear_rebuildsOnNextQuery() {
+        index.find(null, null, entries());
+
+        index.clear();
+        index.find("Paris", null, entries());
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.CachePolicy;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.dto.HotelDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotelResponseCacheTest {
+
+    private HotelResponseCache cache;
+    private AtomicInteger renders;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        cache = new HotelResponseCache(1 << 20, 256, CachePolicy.LFU, null, objectMapper);
+        renders = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private HotelDto render(String id) {
+        renders.incrementAndGet();
+        return new HotelDto(id, "Sample Hotel", "Paris", "5", "2030-01-01", List.of());
+    }
+
+    @Test
+    void getOrRender_serializesCompactJsonOnce() {
+        HotelResponseCache.Response first = cache.getOrRender("hotel-1", this::render);
+        HotelResponseCache.Response second = cache.getOrRender("hotel-1", this::render);
+
+        assertEquals(1, renders.get());
+        assertEquals(first.etag(), second.etag());
+        String json = new String(first.body(), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"id\":\"hotel-1\""));
+        assertFalse(json.contains("\n"));
+        assertEquals(first.body().length, cache.weightedSize());
+    }
+
+    @Test
+    void invalidate_changedContentChangesEtag() {
+        HotelResponseCache.Response before = cache.getOrRender("hotel-1", this::render);
+
+        cache.invalidate("hotel-1");
+        HotelResponseCache.Response after = cache.getOrRender("hotel-1",
+                id -> new HotelDto(id, "Renamed Hotel", "Paris", "5", "2030-01-01", List.of()));
+
+        assertNotEquals(before.etag(), after.etag());
+        assertFalse(after.matches(before.etag()));
+    }
+
+    @Test
+    void etag_sameContentMatchesAcrossRendersAndNodes() {
+        HotelResponseCache.Response before = cache.getOrRender("hotel-1", this::render);
+        cache.invalidate("hotel-1");
+        HotelResponseCache.Response after = cache.getOrRender("hotel-1", this::render);
+        HotelResponseCache otherNode = new HotelResponseCache(1 << 20, 256, CachePolicy.LFU,
+                null, new ObjectMapper());
+
+        assertEquals(2, renders.get());
+        assertTrue(after.matches(before.etag()));
+        assertTrue(otherNode.getOrRender("hotel-1", this::render).matches(before.etag()));
+    }
+
+    @Test
+    void invalidate_inTransaction_waitsForCommit() {
+        cache.getOrRender("hotel-1", this::render);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidate("hotel-1");
+        cache.getOrRender("hotel-1", this::render);
+        assertEquals(1, renders.get());
+
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        cache.getOrRender("hotel-1", this::render);
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void matches_handlesListsWeakTagsAndWildcard() {
+        HotelResponseCache.Response response = cache.getOrRender("hotel-1", this::render);
+
+        assertTrue(response.matches(response.etag()));
+        assertTrue(response.matches("\"other\", W/" + response.etag()));
+        assertTrue(response.matches("*"));
+        assertFalse(response.matches("\"other\""));
+        assertFalse(response.matches(null));
+    }
+}
@@ -3,9 +3,18 @@ package com.example.hotelbookingv2;
 import com.example.hotelbookingv2.model.Hotel;
 import com.example.hotelbookingv2.repository.HotelRepository;
 import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelFilterIndex;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.cache.InvalidationBus;
+import com.example.hotelbookingv2.cache.NegativeCache;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
 import com.example.hotelbookingv2.exception.InvalidInputException;
 import com.example.hotelbookingv2.exception.ResourceNotFoundException;
 import com.example.hotelbookingv2.service.HotelService;
+import com.example.hotelbookingv2.service.ReadModelLoader;
+import com.example.hotelbookingv2.view.HotelSummary;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.KeysetPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,11 +24,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,9 +40,16 @@ class HotelServiceTest {
 
     @Mock private HotelRepository hotelRepository;
     @Mock private HotelCache hotelCache;
+    @Mock private NegativeCache negativeCache;
+    @Mock private HotelResponseCache responseCache;
+    @Mock private InvalidationBus invalidationBus;
+    @Mock private ReadModelLoader readModelLoader;
+    @Mock private HotelFilterIndex filterIndex;
+    @Mock private RoomPriceIndex priceIndex;
     @InjectMocks private HotelService hotelService;
 
     private Hotel sampleHotel;
+    private HotelView sampleView;
 
     @BeforeEach
     void setUp() {
@@ -39,88 +59,133 @@ class HotelServiceTest {
         sampleHotel.setCity("Paris");
         sampleHotel.setCategory("Luxury");
         sampleHotel.setAvailableFromDate(LocalDate.now().toString());
+        sampleView = HotelView.from(sampleHotel);
+    }
+
+    private void queryThroughCache(String city, String category) {
+        when(hotelCache.getPage(eq(city), eq(category), any(), anyInt(), any(), any()))
+                .thenAnswer(invocation -> {
+                    Supplier<List<String>> query = invocation.getArgument(4);
+                    Function<List<String>, List<HotelView>> byIds = invocation.getArgument(5);
+                    return KeysetPage.of(byIds.apply(query.get()), null);
+                });
+    }
+
+    private void loadThroughCache(String id) {
+        when(hotelCache.getHotel(eq(id), any())).thenAnswer(invocation -> {
+            Function<String, HotelView> loader = invocation.getArgument(1);
+            return loader.apply(id);
+        });
     }
 
     @Test
     void getHotels_fromCache() {
-        String key = "Paris:Luxury";
-        when(hotelCache.get(key)).thenReturn(List.of(sampleHotel));
+        when(hotelCache.getPage(eq("Paris"), eq("Luxury"), any(), eq(20), any(), any()))
+                .thenReturn(KeysetPage.of(List.of(sampleView), null));
 
-        List<Hotel> result = hotelService.getHotels("Paris", "Luxury");
+        List<HotelView> result = hotelService.getHotels("Paris", "Luxury", null, 20).items();
 
         assertEquals(1, result.size());
-        verify(hotelRepository, never()).findByCityAndCategory(any(), any());
+        verify(filterIndex, never()).find(any(), any(), any());
     }
 
     @Test
-    void getHotels_byCityAndCategory() {
-        when(hotelCache.get("Paris:Luxury")).thenReturn(null);
-        when(hotelRepository.findByCityAndCategory("Paris", "Luxury"))
-                .thenReturn(List.of(sampleHotel));
+    void getHotels_resolvesIdsThroughFilterIndex() {
+        queryThroughCache("Paris", "Luxury");
+        when(filterIndex.find(eq("Paris"), eq("Luxury"), any())).thenReturn(List.of("hotel-1"));
+        when(readModelLoader.findHotelsById(List.of("hotel-1"))).thenReturn(List.of(sampleView));
 
-        List<Hotel> result = hotelService.getHotels("Paris", "Luxury");
+        List<HotelView> result = hotelService.getHotels("Paris", "Luxury", null, 20).items();
 
-        assertEquals(List.of(sampleHotel), result);
-        verify(hotelCache).put("Paris:Luxury", List.of(sampleHotel));
+        assertEquals(List.of(sampleView), result);
     }
 
     @Test
-    void getHotels_byCityOnly() {
-        when(hotelCache.get("Paris:null")).thenReturn(null);
-        when(hotelRepository.findByCity("Paris")).thenReturn(List.of(sampleHotel));
-
-        List<Hotel> result = hotelService.getHotels("Paris", null);
+    void getHotels_passesDecodedCursorToCache() {
+        String cursor = KeysetPage.of(List.of(), "hotel-1").nextCursor();
+        when(hotelCache.getPage(eq("Paris"), eq(null), eq("hotel-1"), eq(5), any(), any()))
+                .thenReturn(KeysetPage.of(List.of(sampleView), null));
 
-        assertEquals(1, result.size());
+        assertEquals(List.of(sampleView), hotelService.getHotels("Paris", null, cursor, 5).items());
     }
 
     @Test
-    void getHotels_byCategoryOnly() {
-        when(hotelCache.get("null:Luxury")).thenReturn(null);
-        when(hotelRepository.findByCategory("Luxury")).thenReturn(List.of(sampleHotel));
-
-        List<Hotel> result = hotelService.getHotels(null, "Luxury");
-
-        assertEquals(1, result.size());
+    void getHotelSummaries_resolvesIdsThroughFilterIndex() {
+        HotelSummary summary = HotelSummary.from(sampleView);
+        when(hotelCache.getSummaryPage(eq("Paris"), eq(null), eq(null), eq(20), any(), any()))
+                .thenAnswer(invocation -> {
+                    Supplier<List<String>> query = invocation.getArgument(4);
+                    Function<List<String>, List<HotelSummary>> byIds = invocation.getArgument(5);
+                    return KeysetPage.of(byIds.apply(query.get()), null);
+                });
+        when(filterIndex.find(eq("Paris"), eq(null), any())).thenReturn(List.of("hotel-1"));
+        when(hotelRepository.findSummariesByIdIn(List.of("hotel-1"))).thenReturn(List.of(summary));
+
+        assertEquals(List.of(summary),
+                hotelService.getHotelSummaries("Paris", null, null, 20).items());
+        verify(readModelLoader, never()).findHotelsById(any());
     }
 
     @Test
-    void getHotels_all() {
-        when(hotelCache.get("null:null")).thenReturn(null);
-        when(hotelRepository.findAll()).thenReturn(List.of(sampleHotel));
-
-        List<Hotel> result = hotelService.getHotels(null, null);
+    void getHotels_rejectsPageSizeOutOfRange() {
+        assertThrows(InvalidInputException.class, () -> hotelService.getHotels(null, null, null, 0));
+        assertThrows(InvalidInputException.class,
+                () -> hotelService.getHotels(null, null, null, KeysetPage.MAX_LIMIT + 1));
+    }
 
-        assertEquals(1, result.size());
+    @Test
+    void getHotels_rejectsMalformedCursor() {
+        assertThrows(InvalidInputException.class,
+                () -> hotelService.getHotels(null, null, "not a cursor!", 20));
     }
 
     @Test
     void getHotelById_fromCache() {
-        when(hotelCache.get("hotel-1")).thenReturn(List.of(sampleHotel));
+        when(hotelCache.getHotel(eq("hotel-1"), any())).thenReturn(sampleView);
 
-        Hotel result = hotelService.getHotelById("hotel-1");
+        HotelView result = hotelService.getHotelById("hotel-1");
 
-        assertEquals(sampleHotel, result);
-        verify(hotelRepository, never()).findById(any());
+        assertEquals(sampleView, result);
+        verify(readModelLoader, never()).findHotel(any());
     }
 
     @Test
     void getHotelById_fromRepo() {
-        when(hotelCache.get("hotel-1")).thenReturn(null);
-        when(hotelRepository.findById("hotel-1")).thenReturn(Optional.of(sampleHotel));
+        loadThroughCache("hotel-1");
+        when(readModelLoader.findHotel("hotel-1")).thenReturn(Optional.of(sampleView));
 
-        Hotel result = hotelService.getHotelById("hotel-1");
+        HotelView result = hotelService.getHotelById("hotel-1");
 
-        assertEquals(sampleHotel, result);
+        assertEquals(sampleView, result);
     }
 
     @Test
     void getHotelById_notFound() {
-        when(hotelCache.get("hotel-1")).thenReturn(null);
-        when(hotelRepository.findById("hotel-1")).thenReturn(Optional.empty());
+        loadThroughCache("hotel-1");
+        when(readModelLoader.findHotel("hotel-1")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> hotelService.getHotelById("hotel-1"));
+        verify(negativeCache).markMissing(NegativeCache.Kind.HOTEL, "hotel-1");
+    }
+
+    @Test
+    void getHotelById_knownMissing() {
+        loadThroughCache("hotel-1");
+        when(negativeCache.isMissing(NegativeCache.Kind.HOTEL, "hotel-1")).thenReturn(true);
 
         assertThrows(ResourceNotFoundException.class,
                 () -> hotelService.getHotelById("hotel-1"));
+        verify(readModelLoader, never()).findHotel(any());
+    }
+
+    @Test
+    void getHotelReference_checksCacheAndSkipsLoading() {
+        when(hotelCache.getHotel(eq("hotel-1"), any())).thenReturn(sampleView);
+        when(hotelRepository.getReferenceById("hotel-1")).thenReturn(sampleHotel);
+
+        assertEquals(sampleHotel, hotelService.getHotelReference("hotel-1"));
+        verify(hotelRepository, never()).findById(any());
     }
 
     @Test
@@ -130,7 +195,10 @@ class HotelServiceTest {
         Hotel result = hotelService.saveHotel(sampleHotel);
 
         assertEquals(sampleHotel, result);
-        verify(hotelCache).put("hotel-1", List.of(sampleHotel));
+        verify(hotelCache).removeHotel("hotel-1");
+        verify(filterIndex).put("hotel-1", "Paris", "Luxury");
+        verify(hotelCache).invalidateQueries("Paris", "Luxury");
+        verify(negativeCache).invalidate(NegativeCache.Kind.HOTEL, "hotel-1");
     }
 
     @Test
@@ -143,17 +211,21 @@ class HotelServiceTest {
 
     @Test
     void deleteHotel_success() {
-        when(hotelRepository.existsById("hotel-1")).thenReturn(true);
+        when(hotelRepository.findById("hotel-1")).thenReturn(Optional.of(sampleHotel));
 
         hotelService.deleteHotel("hotel-1");
 
-        verify(hotelRepository).deleteById("hotel-1");
-        verify(hotelCache).remove("hotel-1");
+        verify(hotelRepository).delete(sampleHotel);
+        verify(hotelCache).removeHotel("hotel-1");
+        verify(filterIndex).remove("hotel-1");
+        verify(responseCache).invalidate("hotel-1");
+        verify(hotelCache).invalidateQueries("Paris", "Luxury");
+        verify(invalidationBus).hotelDeleted("hotel-1", "Paris", "Luxury");
     }
 
     @Test
     void deleteHotel_notFound() {
-        when(hotelRepository.existsById("hotel-1")).thenReturn(false);
+        when(hotelRepository.findById("hotel-1")).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class,
                 () -> hotelService.deleteHotel("hotel-1"));
@@ -174,7 +246,13 @@ class HotelServiceTest {
         Hotel result = hotelService.updateHotel("hotel-1", updated);
 
         assertEquals("Updated Hotel", result.getName());
-        verify(hotelCache).put("hotel-1", List.of(updated));
+        verify(hotelCache).removeHotel("hotel-1");
+        verify(filterIndex).put("hotel-1", "London", "Business");
+        verify(responseCache).invalidate("hotel-1");
+        verify(hotelCache).invalidateQueries("Paris", "Luxury");
+        verify(hotelCache).invalidateQueries("London", "Business");
+        verify(invalidationBus).hotelChanged("hotel-1", "Paris", "Luxury");
+        verify(invalidationBus).hotelChanged("hotel-1", "London", "Business");
     }
 
     @Test
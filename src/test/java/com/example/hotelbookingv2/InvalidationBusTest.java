@@ -0,0 +1,295 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.CachePolicy;
+import com.example.hotelbookingv2.cache.FacilityCache;
+import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelEntityCache;
+import com.example.hotelbookingv2.cache.HotelFilterIndex;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.cache.InMemoryInvalidationTransport;
+import com.example.hotelbookingv2.cache.InvalidationBus;
+import com.example.hotelbookingv2.cache.InvalidationTransport;
+import com.example.hotelbookingv2.cache.NegativeCache;
+import com.example.hotelbookingv2.cache.PostgresInvalidationTransport;
+import com.example.hotelbookingv2.cache.RoomCache;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
+import com.example.hotelbookingv2.model.Facility;
+import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.model.Room;
+import com.example.hotelbookingv2.view.HotelFilterEntry;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.RoomPriceEntry;
+import com.example.hotelbookingv2.view.RoomView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InvalidationBusTest {
+
+    private RecordingTransport transport;
+    private Node first;
+    private Node second;
+
+    @BeforeEach
+    void setUp() {
+        transport = new RecordingTransport();
+        first = new Node(transport);
+        second = new Node(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void roomChangeEvictsOnPeerButNotOnSender() {
+        first.rooms.put("room-1", room("room-1"));
+        second.rooms.put("room-1", room("room-1"));
+        second.hotels.putHotel(hotel("hotel-1", "Paris"));
+        second.negative.markMissing(NegativeCache.Kind.ROOM, "room-1");
+
+        first.bus.roomChanged("room-1", "hotel-1");
+
+        assertNull(second.rooms.get("room-1"));
+        assertNull(second.hotels.getHotel("hotel-1", id -> null));
+        assertFalse(second.negative.isMissing(NegativeCache.Kind.ROOM, "room-1"));
+        assertNotNull(first.rooms.get("room-1"));
+        verify(second.secondLevel).evictEntityData(Room.class, "room-1");
+        verify(second.secondLevel).evictCollectionData(Hotel.class.getName() + ".rooms", "hotel-1");
+        verify(second.secondLevel).evictDefaultQueryRegion();
+    }
+
+    @Test
+    void hotelChangeWithSpecialCharactersEvictsMatchingQueries() {
+        String city = "Санкт-Петербург\t~ 100%\n";
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<String>> byCity = () -> {
+            loads.incrementAndGet();
+            return List.of("hotel-1");
+        };
+        Supplier<List<String>> paris = () -> {
+            loads.incrementAndGet();
+            return List.of("hotel-2");
+        };
+        second.hotels.getPage(city, null, null, 100, byCity, ids -> List.of());
+        second.hotels.getPage("Paris", null, null, 100, paris, ids -> List.of());
+
+        first.bus.hotelChanged("hotel-1", city, "Luxury");
+        second.hotels.getPage(city, null, null, 100, byCity, ids -> List.of());
+        second.hotels.getPage("Paris", null, null, 100, paris, ids -> List.of());
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void hotelEventsKeepPeerFilterIndexCurrent() {
+        second.index.find(null, null, () -> List.of(
+                new HotelFilterEntry("hotel-1", "Paris", "Luxury"),
+                new HotelFilterEntry("hotel-2", "Paris", "Budget")));
+        TransactionSynchronizationManager.initSynchronization();
+        // Отель переехал туда и обратно в одной транзакции: последнее событие — текущее
+        first.bus.hotelChanged("hotel-1", "Paris", "Luxury");
+        first.bus.hotelChanged("hotel-1", "London", "Luxury");
+        first.bus.hotelChanged("hotel-1", "London", "Luxury");
+        first.bus.hotelChanged("hotel-1", "Paris", "Luxury");
+        first.bus.hotelDeleted("hotel-2", "Paris", "Budget");
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(List.of("hotel-1"), second.index.find("Paris", null, List::of));
+        assertEquals(List.of(), second.index.find("London", null, List::of));
+    }
+
+    @Test
+    void hotelEventsRefreshPeerPriceIndex() {
+        List<RoomPriceEntry> database = new ArrayList<>(List.of(
+                new RoomPriceEntry("room-1", "Deluxe", 100.0, "hotel-1", "Paris"),
+                new RoomPriceEntry("room-2", "Deluxe", 80.0, "hotel-2", "Paris")));
+        RoomPriceIndex.Filter paris = new RoomPriceIndex.Filter(null, "Paris", 0, 1000);
+        Supplier<List<String>> find = () -> second.priceIndex.find(paris, null, 10,
+                () -> database, rooms -> List.of(), hotels -> database.stream()
+                        .filter(entry -> hotels.contains(entry.hotelId())).toList())
+                .roomIds();
+        find.get();
+        // Отель переехал, второй удалён вместе с номером
+        database.set(0, new RoomPriceEntry("room-1", "Deluxe", 100.0, "hotel-1",
+                "London"));
+        database.remove(1);
+
+        first.bus.hotelChanged("hotel-1", "London", "Deluxe");
+        first.bus.hotelDeleted("hotel-2", "Paris", "Deluxe");
+
+        assertEquals(List.of(), find.get());
+        assertEquals(1, second.priceIndex.size());
+    }
+
+    @Test
+    void facilityChangeReloadsPeerCatalogueAndDropsSnapshots() {
+        second.facilities.get(() -> List.of(new Facility("1", "Wi-Fi")));
+        second.rooms.put("room-1", room("room-1"));
+
+        first.bus.facilityChanged("1");
+
+        assertEquals(0, second.rooms.size());
+        assertEquals("Premium Wi-Fi",
+                second.facilities.get(() -> List.of(new Facility("1", "Premium Wi-Fi"))).nameOf("1"));
+    }
+
+    @Test
+    void transactionPublishesBatchedEventsAfterCommit() {
+        for (int i = 0; i < 1000; i++) {
+            second.rooms.put("room-" + i, room("room-" + i));
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 1000; i++) {
+            first.bus.roomChanged("room-" + i, "hotel-1");
+        }
+        assertTrue(transport.payloads.isEmpty());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(transport.payloads.size() <= 5, "Сообщений: " + transport.payloads.size());
+        transport.payloads.forEach(payload ->
+                assertTrue(payload.length() <= InvalidationTransport.MAX_PAYLOAD));
+        assertEquals(0, second.rooms.size());
+    }
+
+    @Test
+    void rolledBackTransactionPublishesNothing() {
+        second.rooms.put("room-1", room("room-1"));
+        TransactionSynchronizationManager.initSynchronization();
+        first.bus.roomChanged("room-1", "hotel-1");
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertTrue(transport.payloads.isEmpty());
+        assertNotNull(second.rooms.get("room-1"));
+    }
+
+    @Test
+    void gapClearsCaches() {
+        second.rooms.put("room-1", room("room-1"));
+        second.hotels.putHotel(hotel("hotel-1", "Paris"));
+
+        second.index.find(null, null, () -> List.of(
+                new HotelFilterEntry("hotel-1", "Paris", "Luxury")));
+
+        transport.gaps.forEach(Runnable::run);
+
+        assertEquals(0, second.rooms.size());
+        assertEquals(0, second.index.size());
+        assertNull(second.hotels.getHotel("hotel-1", id -> null));
+        verify(second.secondLevel).evictAllRegions();
+    }
+
+    @Test
+    void postgresPublish_retriesFailedNotify() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"))
+                .thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        PostgresInvalidationTransport postgres =
+                new PostgresInvalidationTransport(dataSource, new DataSourceProperties());
+
+        postgres.publish("node\nR\troom-1");
+
+        verify(dataSource, times(2)).getConnection();
+        verify(statement).setString(2, "node\nR\troom-1");
+        verify(statement).execute();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static RoomView room(String id) {
+        return new RoomView(id, "101", "Deluxe", 100.0, "hotel-1", List.of());
+    }
+
+    private static HotelView hotel(String id, String city) {
+        return new HotelView(id, "Ritz", city, "Luxury", null, List.of());
+    }
+
+    private static final class RecordingTransport extends InMemoryInvalidationTransport {
+
+        final List<String> payloads = new ArrayList<>();
+        final List<Runnable> gaps = new ArrayList<>();
+
+        @Override
+        public void publish(String payload) {
+            payloads.add(payload);
+            super.publish(payload);
+        }
+
+        @Override
+        public void subscribe(Consumer<String> listener, Runnable onGap) {
+            gaps.add(onGap);
+            super.subscribe(listener, onGap);
+        }
+    }
+
+    private static final class Node {
+
+        final HotelCache hotels;
+        final RoomCache rooms = new RoomCache(10_000, CachePolicy.LFU, DataSize.ofBytes(0));
+        final NegativeCache negative = new NegativeCache(100, CachePolicy.LFU, null);
+        final FacilityCache facilities = new FacilityCache();
+        final HotelFilterIndex index = new HotelFilterIndex();
+        final RoomFacilityIndex facilityIndex = new RoomFacilityIndex();
+        final RoomPriceIndex priceIndex = new RoomPriceIndex();
+        final org.hibernate.Cache secondLevel = mock(org.hibernate.Cache.class);
+        final InvalidationBus bus;
+
+        Node(InvalidationTransport transport) {
+            HotelEntityCache entities = new HotelEntityCache(100, CachePolicy.LFU, null,
+                    DataSize.ofBytes(0));
+            hotels = new HotelCache(100, CachePolicy.LFU, null, null, Runnable::run, entities);
+            HotelResponseCache responses = new HotelResponseCache(1 << 20, 256, CachePolicy.LFU,
+                    Duration.ofMinutes(1), new ObjectMapper());
+            EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+            when(entityManagerFactory.getCache()).thenReturn(secondLevel);
+            when(secondLevel.unwrap(org.hibernate.Cache.class)).thenReturn(secondLevel);
+            bus = new InvalidationBus(transport, hotels, rooms, responses, negative, facilities,
+                    index, facilityIndex, priceIndex, entityManagerFactory);
+            bus.subscribe();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.hotelbookingv2;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.hotelbookingv2.cache.LfuCache;
+import com.example.hotelbookingv2.cache.LfuCacheBase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.LoggerFactory;
+
+// Запуск: mvn test -Dtest=LfuCacheContentionBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LfuCacheContentionBenchmark {
+
+    private static final int CAPACITY = 10_000;
+    private static final int KEY_SPACE = 20_000;
+    private static final long DURATION_MILLIS = 2_000;
+
+    @Test
+    void readHeavyThroughputByThreadCount() throws Exception {
+        ((Logger) LoggerFactory.getLogger(LfuCacheBase.class)).setLevel(Level.WARN);
+
+        LfuCache<Integer> cache = new LfuCache<>(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.put(String.valueOf(i), i);
+        }
+        String[] keys = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = String.valueOf(i);
+        }
+
+        int maxThreads = Math.max(32, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long ops = run(cache, keys, threads);
+            System.out.printf("threads=%d ops/s=%,d%n", threads, ops * 1000 / DURATION_MILLIS);
+        }
+    }
+
+    private long run(LfuCache<Integer> cache, String[] keys, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder ops = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                while (System.nanoTime() < deadline) {
+                    // Около 95% чтений и 5% промахов с последующей записью
+                    String key = keys[random.nextInt(random.nextInt(20) == 0 ? KEY_SPACE : CAPACITY)];
+                    if (cache.get(key) == null) {
+                        cache.put(key, 0);
+                    }
+                    local++;
+                }
+                ops.add(local);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        return ops.sum();
+    }
+}
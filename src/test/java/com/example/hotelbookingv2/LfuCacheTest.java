@@ -0,0 +1,622 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.CachePolicy;
+import com.example.hotelbookingv2.cache.CacheStatsSnapshot;
+import com.example.hotelbookingv2.cache.LfuCache;
+import com.example.hotelbookingv2.cache.LfuCacheList;
+import com.example.hotelbookingv2.cache.RemovalCause;
+import com.example.hotelbookingv2.cache.RoomSnapshotCodec;
+import com.example.hotelbookingv2.cache.SnapshotCodec;
+import com.example.hotelbookingv2.view.FacilityView;
+import com.example.hotelbookingv2.view.RoomView;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LfuCacheTest {
+
+    private LfuCache<String> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LfuCache<>(3);
+    }
+
+    @Test
+    void get_missingKey_returnsNull() {
+        assertNull(cache.get("absent"));
+    }
+
+    @Test
+    void put_updatesExistingValue() {
+        cache.put("a", "1");
+        cache.put("a", "2");
+
+        assertEquals("2", cache.get("a"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void put_evictsLeastFrequentlyUsed() {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.get("a");
+        cache.get("a");
+        cache.get("c");
+
+        cache.put("d", "D");
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals("D", cache.get("d"));
+    }
+
+    @Test
+    void put_evictsOldestAmongEqualFrequencies() {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+
+        cache.put("d", "D");
+
+        assertNull(cache.get("a"));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void put_evictionOrderFollowsFrequency() {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        for (int i = 0; i < 3; i++) {
+            cache.get("a");
+        }
+        cache.get("b");
+
+        cache.put("d", "D");
+        assertNull(cache.get("c"));
+
+        cache.put("e", "E");
+        assertNull(cache.get("d"));
+
+        assertEquals("A", cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals("E", cache.get("e"));
+    }
+
+    @Test
+    void remove_keepsRemainingEntriesEvictable() {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.remove("b");
+        cache.put("c", "C");
+        cache.put("d", "D");
+
+        cache.put("e", "E");
+
+        assertNull(cache.get("c"));
+        assertEquals("A", cache.get("a"));
+    }
+
+    @Test
+    void clear_removesAllEntries() {
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        cache.clear();
+        cache.put("c", "C");
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new LfuCache<String>(0));
+    }
+
+    @Test
+    void concurrentAccess_keepsCacheConsistent() throws Exception {
+        LfuCache<Integer> shared = new LfuCache<>(64);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    int key = random.nextInt(256);
+                    if (shared.get(String.valueOf(key)) == null) {
+                        shared.put(String.valueOf(key), key);
+                    }
+                    if (i % 97 == 0) {
+                        shared.remove(String.valueOf(random.nextInt(256)));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertTrue(shared.size() <= 64);
+        for (int key = 0; key < 256; key++) {
+            Integer value = shared.get(String.valueOf(key));
+            assertTrue(value == null || value == key);
+        }
+        shared.clear();
+        shared.put("x", 1);
+        assertEquals(1, shared.get("x"));
+    }
+
+    @Test
+    void windowTinyLfu_admitsNewHotKeysAfterTrafficShift() {
+        LfuCache<String> tinyLfu = new LfuCache<>(100, CachePolicy.W_TINY_LFU);
+        LfuCache<String> lfu = new LfuCache<>(100, CachePolicy.LFU);
+
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                access(tinyLfu, "old-" + i);
+                access(lfu, "old-" + i);
+            }
+        }
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 50; i++) {
+                access(tinyLfu, "new-" + i);
+                access(lfu, "new-" + i);
+            }
+        }
+
+        int tinyLfuHits = countPresent(tinyLfu, "new-", 50);
+        int lfuHits = countPresent(lfu, "new-", 50);
+        assertTrue(tinyLfuHits >= 45, "W-TinyLFU kept only " + tinyLfuHits + " new keys");
+        assertTrue(lfuHits <= 1, "LFU kept " + lfuHits + " new keys");
+    }
+
+    @Test
+    void windowTinyLfu_resistsOneHitScan() {
+        LfuCache<String> tinyLfu = new LfuCache<>(100, CachePolicy.W_TINY_LFU);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                access(tinyLfu, "hot-" + i);
+            }
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            access(tinyLfu, "scan-" + i);
+        }
+
+        assertTrue(countPresent(tinyLfu, "hot-", 50) >= 49);
+        assertTrue(tinyLfu.size() <= 100);
+    }
+
+    @Test
+    void windowTinyLfu_weightedBySize_sketchFollowsExpectedEntries() {
+        // 100 записей по 1000 «байт»: sketch на 100 ключей, а не на 100 000
+        LfuCache<String> tinyLfu = new LfuCache<>(100_000, 100, CachePolicy.W_TINY_LFU,
+                (key, value) -> 1_000);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                access(tinyLfu, "hot-" + i);
+            }
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            access(tinyLfu, "scan-" + i);
+        }
+
+        assertTrue(countPresent(tinyLfu, "hot-", 50) >= 49);
+        assertTrue(tinyLfu.size() <= 100);
+        assertThrows(IllegalArgumentException.class, () -> new LfuCache<String>(100, 0,
+                CachePolicy.W_TINY_LFU, (key, value) -> 1));
+    }
+
+    private static void access(LfuCache<String> target, String key) {
+        if (target.get(key) == null) {
+            target.put(key, key);
+        }
+    }
+
+    private static int countPresent(LfuCache<String> target, String prefix, int count) {
+        int present = 0;
+        for (int i = 0; i < count; i++) {
+            if (target.get(prefix + i) != null) {
+                present++;
+            }
+        }
+        return present;
+    }
+
+    @Test
+    void expireAfterWrite_expiresEntryLazily() {
+        AtomicLong now = new AtomicLong();
+        cache.setTicker(now::get);
+        cache.setExpireAfterWrite(Duration.ofSeconds(10));
+        cache.put("a", "A");
+
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertEquals("A", cache.get("a"));
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void refreshAfterWrite_reloadsInBackgroundAndServesOldValue() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        List<Runnable> scheduled = new ArrayList<>();
+        cache.setTicker(now::get);
+        cache.setExpireAfterWrite(Duration.ofSeconds(10));
+        cache.setRefreshAfterWrite(Duration.ofSeconds(8), scheduled::add);
+        cache.put("a", "A", key -> "A" + loads.incrementAndGet());
+
+        now.addAndGet(Duration.ofSeconds(8).toNanos());
+        assertEquals("A", cache.get("a"));
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, scheduled.size());
+
+        scheduled.get(0).run();
+        assertEquals("A1", cache.get("a"));
+
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertEquals("A1", cache.get("a"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void refreshAfterWrite_failedReloadKeepsOldValue() {
+        AtomicLong now = new AtomicLong();
+        cache.setTicker(now::get);
+        cache.setRefreshAfterWrite(Duration.ofSeconds(1), Runnable::run);
+        cache.put("a", "A", key -> {
+            throw new IllegalStateException("db down");
+        });
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertEquals("A", cache.get("a"));
+        assertEquals("A", cache.get("a"));
+    }
+
+    @Test
+    void getWithLoader_coalescesConcurrentMisses() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<String>> results = new ArrayList<>();
+
+        results.add(pool.submit(() -> cache.get("a", key -> {
+            loads.incrementAndGet();
+            loaderStarted.countDown();
+            await(releaseLoader);
+            return "A";
+        })));
+        loaderStarted.await();
+        for (int i = 1; i < callers; i++) {
+            results.add(pool.submit(() -> cache.get("a", key -> {
+                loads.incrementAndGet();
+                return "other";
+            })));
+        }
+        while (cache.getCoalescedLoadCount() < callers - 1) {
+            Thread.onSpinWait();
+        }
+        releaseLoader.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("A", result.get());
+        }
+        pool.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(callers - 1, cache.getCoalescedLoadCount());
+    }
+
+    @Test
+    void getWithLoader_doesNotCacheFailures() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> cache.get("a", key -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals("A", cache.get("a", key -> {
+            loads.incrementAndGet();
+            return "A";
+        }));
+
+        assertEquals(2, loads.get());
+        assertEquals("A", cache.get("a", key -> "other"));
+    }
+
+    @Test
+    void getWithLoader_removeDuringLoad_discardsLoadedValue() throws Exception {
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        // Загрузчик прочитал строку до записи, а запись успела инвалидировать ключ
+        Future<String> stale = pool.submit(() -> cache.get("a", key -> {
+            loaderStarted.countDown();
+            await(releaseLoader);
+            return "old";
+        }));
+        loaderStarted.await();
+        cache.remove("a");
+        releaseLoader.countDown();
+
+        assertEquals("old", stale.get());
+        pool.shutdown();
+        assertNull(cache.get("a"));
+        assertEquals("new", cache.get("a", key -> "new"));
+    }
+
+    @Test
+    void getAll_invalidationDuringLoad_discardsLoadedValues() {
+        Map<String, String> loaded = cache.getAll(List.of("a", "b"), missing -> {
+            cache.remove("a");
+            return Map.of("a", "old", "b", "old");
+        });
+
+        assertEquals(Map.of("a", "old", "b", "old"), loaded);
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void weightedList_boundsTotalElementCount() {
+        LfuCacheList<Integer> lists = new LfuCacheList<>(10);
+        lists.put("small", List.of(1, 2));
+        lists.put("medium", List.of(1, 2, 3, 4));
+        lists.get("medium");
+
+        lists.put("large", List.of(1, 2, 3, 4, 5, 6));
+
+        assertNull(lists.get("small"));
+        assertEquals(4, lists.get("medium").size());
+        assertEquals(6, lists.get("large").size());
+        assertEquals(10, lists.weightedSize());
+    }
+
+    @Test
+    void weightedList_rejectsEntryHeavierThanCache() {
+        LfuCacheList<Integer> lists = new LfuCacheList<>(10);
+        lists.put("small", List.of(1));
+
+        lists.put("huge", Collections.nCopies(11, 0));
+
+        assertNull(lists.get("huge"));
+        assertEquals(1, lists.get("small").size());
+    }
+
+    @Test
+    void weightedList_updateToHeavierValueEvictsOthers() {
+        LfuCacheList<Integer> lists = new LfuCacheList<>(10, CachePolicy.W_TINY_LFU);
+        lists.put("a", List.of(1, 2, 3));
+        lists.put("b", List.of(1, 2, 3));
+        lists.put("c", List.of(1, 2, 3));
+
+        lists.put("a", Collections.nCopies(8, 0));
+
+        assertTrue(lists.weightedSize() <= 10);
+        assertEquals(8, lists.get("a").size());
+    }
+
+    @Test
+    void stats_countHitsMissesLoadsAndEvictionsByCause() {
+        AtomicLong now = new AtomicLong();
+        cache.setTicker(now::get);
+        cache.setExpireAfterWrite(Duration.ofSeconds(10));
+        cache.get("a", key -> "A");
+        cache.get("a");
+        assertThrows(IllegalStateException.class, () -> cache.get("b", key -> {
+            throw new IllegalStateException("db down");
+        }));
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.put("d", "D");
+        cache.remove("d");
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        cache.get("c");
+
+        CacheStatsSnapshot stats = cache.stats();
+
+        assertEquals(1, stats.hitCount());
+        assertEquals(3, stats.missCount());
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertEquals(1, stats.evictionCounts().get(RemovalCause.SIZE));
+        assertEquals(1, stats.evictionCounts().get(RemovalCause.EXPLICIT));
+        assertEquals(1, stats.evictionCounts().get(RemovalCause.EXPIRED));
+        assertEquals(1, stats.entryCount());
+        assertEquals(1, stats.weightedSize());
+    }
+
+    private static final SnapshotCodec<String> STRING_CODEC = new SnapshotCodec<>() {
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Test
+    void offHeapTier_keepsSizeEvictedEntriesAndPromotesThemBack() {
+        cache.enableOffHeapTier(64 << 10, STRING_CODEC);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.put("d", "D");
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.offHeapSize());
+        List<String> values = new ArrayList<>();
+        for (String key : List.of("a", "b", "c", "d")) {
+            values.add(cache.get(key));
+        }
+
+        assertEquals(List.of("A", "B", "C", "D"), values);
+        assertEquals(4, cache.size() + cache.offHeapSize());
+        assertEquals(4, cache.stats().hitCount());
+    }
+
+    @Test
+    void offHeapTier_removeAndPutDropStaleSnapshots() {
+        cache.enableOffHeapTier(64 << 10, STRING_CODEC);
+        for (String key : List.of("a", "b", "c", "d", "e")) {
+            cache.put(key, key.toUpperCase());
+        }
+        assertEquals(2, cache.offHeapSize());
+
+        cache.clear();
+        cache.put("x", "X");
+        cache.remove("x");
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("x"));
+        assertEquals(0, cache.offHeapSize());
+    }
+
+    @Test
+    void offHeapTier_serializesVictimsOutsideEvictionLock() throws Exception {
+        CountDownLatch serializing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> victims = Collections.synchronizedList(new ArrayList<>());
+        cache.enableOffHeapTier(64 << 10, new SnapshotCodec<>() {
+            @Override
+            public void write(String value, DataOutput out) throws IOException {
+                victims.add(value.toLowerCase());
+                serializing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                out.writeUTF(value);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return in.readUTF();
+            }
+        });
+        for (String key : List.of("a", "b", "c")) {
+            cache.put(key, key.toUpperCase());
+        }
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> evicting = pool.submit(() -> cache.put("d", "D"));
+            serializing.await();
+            String victim = victims.get(0);
+
+            // Пока вытесненное значение сериализуется, кэш не заблокирован, а удаление
+            // ключа не даёт его устаревшему снимку попасть вне кучи
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                cache.remove(victim);
+                assertEquals("D", cache.get("d"));
+            });
+            release.countDown();
+            evicting.get();
+
+            assertEquals(0, cache.offHeapSize());
+            assertNull(cache.get(victim));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void offHeapTier_respectsExpireAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        cache.setTicker(now::get);
+        cache.setExpireAfterWrite(Duration.ofSeconds(10));
+        cache.enableOffHeapTier(64 << 10, STRING_CODEC);
+        for (String key : List.of("a", "b", "c", "d")) {
+            cache.put(key, key.toUpperCase());
+        }
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        for (String key : List.of("a", "b", "c", "d")) {
+            assertNull(cache.get(key));
+        }
+    }
+
+    @Test
+    void offHeapTier_recyclesOldestSlabWhenFull() {
+        LfuCache<String> small = new LfuCache<>(1);
+        small.enableOffHeapTier(8 << 10, STRING_CODEC);
+        String payload = "x".repeat(1000);
+        for (int i = 0; i < 20; i++) {
+            small.put("k" + i, payload + i);
+        }
+
+        // Два слаба по 4 КБ вмещают не больше восьми записей по килобайту
+        assertTrue(small.offHeapSize() <= 8);
+        assertNull(small.get("k0"));
+        assertEquals(payload + 18, small.get("k18"));
+    }
+
+    @Test
+    void roomSnapshotCodec_roundTripsRoomWithFacilities() throws IOException {
+        RoomView room = new RoomView("room-1", "101", "Deluxe", 120.5, "hotel-1",
+                List.of(new FacilityView("f-1", "Wi-Fi")));
+        RoomSnapshotCodec codec = new RoomSnapshotCodec();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        codec.write(room, new DataOutputStream(bytes));
+        RoomView copy = codec.read(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(room, copy);
+    }
+}
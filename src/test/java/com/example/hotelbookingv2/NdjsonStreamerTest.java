@@ -0,0 +1,86 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.controller.NdjsonStreamer;
+import com.example.hotelbookingv2.view.FacilityView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NdjsonStreamerTest {
+
+    // Как в приложении: spring.jackson.serialization.indent-output=true
+    private final NdjsonStreamer streamer = new NdjsonStreamer(
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT));
+
+    @Test
+    void writesOneCompactObjectPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        streamer.write(out, sink -> {
+            sink.accept(new FacilityView("1", "Wi-Fi"));
+            sink.accept(new FacilityView("2", "Бассейн"));
+        });
+
+        assertEquals("{\"id\":\"1\",\"name\":\"Wi-Fi\"}\n{\"id\":\"2\",\"name\":\"Бассейн\"}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void firstLineIsFlushedBeforeSourceFinishes() throws IOException {
+        List<Integer> flushedSizes = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                buffer.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                buffer.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                flushedSizes.add(buffer.size());
+            }
+        };
+
+        streamer.write(out, sink -> {
+            sink.accept(new FacilityView("1", "Wi-Fi"));
+            // Клиент уже получил первую строку, пока источник читает следующие
+            assertEquals(List.of(buffer.size()), flushedSizes);
+            for (int i = 2; i <= 1000; i++) {
+                sink.accept(new FacilityView(Integer.toString(i), "Wi-Fi"));
+            }
+        });
+
+        assertEquals(1000, buffer.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    @Test
+    void clientDisconnectStopsSource() {
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        int[] produced = {0};
+
+        assertThrows(IOException.class, () -> streamer.write(closed, sink -> {
+            while (true) {
+                sink.accept(new FacilityView(Integer.toString(produced[0]++), "Wi-Fi"));
+            }
+        }));
+        assertEquals(1, produced[0]);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.hotelbookingv2;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.hotelbookingv2.cache.CachePolicy;
+import com.example.hotelbookingv2.cache.LfuCache;
+import com.example.hotelbookingv2.cache.LfuCacheBase;
+import com.example.hotelbookingv2.cache.RoomSnapshotCodec;
+import com.example.hotelbookingv2.cache.Weigher;
+import com.example.hotelbookingv2.view.FacilityView;
+import com.example.hotelbookingv2.view.RoomView;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.LoggerFactory;
+
+// Запуск: mvn test -Dtest=OffHeapTierBenchmark -Dbenchmark=true
+// Для наглядности стоит ограничить кучу: -DargLine="-Xmx512m"
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OffHeapTierBenchmark {
+
+    private static final int ROOMS = 200_000;
+    private static final int ON_HEAP_WITH_TIER = 20_000;
+    private static final long OFF_HEAP_BYTES = 256L << 20;
+    private static final long DURATION_MILLIS = 5_000;
+
+    @Test
+    void gcPausesAndThroughputWithAndWithoutTier() {
+        ((Logger) LoggerFactory.getLogger(LfuCacheBase.class)).setLevel(Level.WARN);
+
+        LfuCache<RoomView> heapOnly = new LfuCache<>(ROOMS, CachePolicy.W_TINY_LFU,
+                Weigher.singleton());
+        report("heap only", heapOnly);
+        heapOnly = null;
+        System.gc();
+
+        LfuCache<RoomView> tiered = new LfuCache<>(ON_HEAP_WITH_TIER, CachePolicy.W_TINY_LFU,
+                Weigher.singleton());
+        tiered.enableOffHeapTier(OFF_HEAP_BYTES, new RoomSnapshotCodec());
+        report("heap + off-heap", tiered);
+    }
+
+    private void report(String name, LfuCache<RoomView> cache) {
+        String[] keys = new String[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            keys[i] = "room-" + i;
+            cache.put(keys[i], room(keys[i]));
+        }
+        System.gc();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        long ops = 0;
+        long loads = 0;
+        while (System.nanoTime() < deadline) {
+            // Перекос как у реального трафика: десятая часть номеров получает большинство чтений
+            int bound = random.nextInt(4) == 0 ? ROOMS : ROOMS / 10;
+            String key = keys[random.nextInt(bound)];
+            if (cache.get(key) == null) {
+                cache.put(key, room(key));
+                loads++;
+            }
+            ops++;
+        }
+
+        long gcCount = gcCount() - gcCountBefore;
+        long gcTime = gcTimeMillis() - gcTimeBefore;
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%s: ops/s=%,d loads=%,d gc=%d collections/%d ms heap=%,d KB"
+                        + " on-heap=%,d off-heap=%,d%n",
+                name, ops * 1000 / DURATION_MILLIS, loads, gcCount, gcTime, heapUsed >> 10,
+                cache.size(), cache.offHeapSize());
+    }
+
+    private static RoomView room(String id) {
+        List<FacilityView> facilities = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            facilities.add(new FacilityView("facility-" + i, "Удобство " + i));
+        }
+        return new RoomView(id, id.substring(5), "Deluxe", 100.0,
+                "hotel-" + id.hashCode() % 1000, facilities);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
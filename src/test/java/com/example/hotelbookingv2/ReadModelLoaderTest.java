@@ -0,0 +1,131 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.model.Facility;
+import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.model.Room;
+import com.example.hotelbookingv2.repository.HotelRepository;
+import com.example.hotelbookingv2.repository.RoomRepository;
+import com.example.hotelbookingv2.service.ReadModelLoader;
+import com.example.hotelbookingv2.view.FacilityView;
+import com.example.hotelbookingv2.view.HotelView;
+import com.example.hotelbookingv2.view.RoomView;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReadModelLoaderTest {
+
+    @Mock private HotelRepository hotelRepository;
+    @Mock private RoomRepository roomRepository;
+    @Mock private EntityManager entityManager;
+    @InjectMocks private ReadModelLoader loader;
+
+    private Hotel hotel;
+
+    @BeforeEach
+    void setUp() {
+        hotel = new Hotel("hotel-1", "Ritz", "Paris", "Luxury", "2025-01-01");
+        Room room = new Room();
+        room.setId("room-1");
+        room.setRoomNumber("101");
+        room.setType("Deluxe");
+        room.setPrice(100.0);
+        room.setHotel(hotel);
+        room.setFacilities(new ArrayList<>(List.of(new Facility("f-1", "Wi-Fi"))));
+        hotel.setRooms(new ArrayList<>(List.of(room)));
+    }
+
+    @Test
+    void findHotel_flattensRoomsAndFacilities() {
+        when(hotelRepository.findWithRoomsByIdIn(List.of("hotel-1")))
+                .thenReturn(List.of(hotel));
+
+        HotelView view = loader.findHotel("hotel-1").orElseThrow();
+
+        assertEquals("Ritz", view.name());
+        RoomView room = view.rooms().get(0);
+        assertEquals("hotel-1", room.hotelId());
+        assertEquals(List.of(new FacilityView("f-1", "Wi-Fi")), room.facilities());
+    }
+
+    @Test
+    void snapshotIsNotChangedByEntity() {
+        when(hotelRepository.findWithRoomsByIdIn(List.of("hotel-1")))
+                .thenReturn(List.of(hotel));
+        HotelView view = loader.findHotel("hotel-1").orElseThrow();
+
+        hotel.getRooms().clear();
+
+        assertEquals(1, view.rooms().size());
+        assertThrows(UnsupportedOperationException.class, () -> view.rooms().clear());
+    }
+
+    @Test
+    void findRoomsById_keepsHotelId() {
+        Room room = hotel.getRooms().get(0);
+        when(roomRepository.findWithFacilitiesByIdIn(List.of("room-1")))
+                .thenReturn(List.of(room));
+
+        List<RoomView> rooms = loader.findRoomsById(List.of("room-1"));
+
+        assertEquals("hotel-1", rooms.get(0).hotelId());
+        assertEquals("Wi-Fi", rooms.get(0).facilities().get(0).name());
+    }
+
+    @Test
+    void findHotelsById_fetchesFacilitiesOnlyForHotelsWithRooms() {
+        Hotel empty = new Hotel("hotel-2", "Ibis", "Paris", "Budget", null);
+        when(hotelRepository.findWithRoomsByIdIn(List.of("hotel-1", "hotel-2")))
+                .thenReturn(List.of(hotel, empty));
+
+        assertEquals(2, loader.findHotelsById(List.of("hotel-1", "hotel-2")).size());
+
+        verify(roomRepository).findWithFacilitiesByHotelIdIn(List.of("hotel-1"));
+    }
+
+    @Test
+    void findHotelsById_emptyIds_skipsQueries() {
+        assertEquals(List.of(), loader.findHotelsById(List.of()));
+
+        verifyNoInteractions(hotelRepository, roomRepository);
+    }
+
+    @Test
+    void forEachHotel_clearsSessionAfterEveryBatchAndClosesCursor() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Hotel> hotels = IntStream.range(0, 1200)
+                .mapToObj(i -> new Hotel("hotel-" + i, "Ritz", "Paris", "Luxury", null))
+                .onClose(() -> closed.set(true));
+        when(hotelRepository.streamHotels("Paris", null)).thenReturn(hotels);
+        Session session = mock(Session.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        List<String> seen = new ArrayList<>();
+
+        loader.forEachHotel("Paris", null, hotel -> seen.add(hotel.getId()));
+
+        assertEquals(1200, seen.size());
+        verify(session).setCacheMode(CacheMode.GET);
+        verify(entityManager, times(3)).clear();
+        assertTrue(closed.get());
+    }
+}
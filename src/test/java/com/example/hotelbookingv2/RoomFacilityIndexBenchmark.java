@@ -0,0 +1,68 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.RoomFacilityIndex.Match;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
+import com.example.hotelbookingv2.view.RoomFacilityEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Запуск: mvn test -Dtest=RoomFacilityIndexBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RoomFacilityIndexBenchmark {
+
+    private static final int ROOMS = 2_000_000;
+    private static final int FACILITIES = 30;
+    private static final int PER_ROOM = 6;
+    private static final int QUERIES = 20_000;
+
+    @Test
+    void searchLatencyAtTwoMillionRooms() {
+        List<RoomFacilityEntry> entries = new ArrayList<>(ROOMS * PER_ROOM);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < ROOMS; i++) {
+            for (int j = 0; j < PER_ROOM; j++) {
+                entries.add(new RoomFacilityEntry("room-" + i,
+                        "facility-" + random.nextInt(FACILITIES)));
+            }
+        }
+        RoomFacilityIndex index = new RoomFacilityIndex();
+        long buildStart = System.nanoTime();
+        index.find(List.of("facility-0"), Match.ALL, null, 1, () -> entries,
+                rooms -> List.of());
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        entries.clear();
+
+        report("1 facility", () -> page(index, Match.ALL, 1));
+        report("3, ALL", () -> page(index, Match.ALL, 3));
+        report("5, ALL", () -> page(index, Match.ALL, 5));
+        report("3, ANY", () -> page(index, Match.ANY, 3));
+        System.out.printf("build: %,d rooms in %d ms%n", index.size(), buildMillis);
+    }
+
+    private static RoomFacilityIndex.Page page(RoomFacilityIndex index, Match match, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> facilities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            facilities.add("facility-" + random.nextInt(FACILITIES));
+        }
+        return index.find(facilities, match, null, 20, List::of, rooms -> List.of());
+    }
+
+    private static void report(String name, Supplier<RoomFacilityIndex.Page> query) {
+        for (int i = 0; i < QUERIES / 10; i++) {
+            query.get();
+        }
+        long found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            found += query.get().roomIds().size();
+        }
+        long nanos = (System.nanoTime() - start) / QUERIES;
+        System.out.printf("%-12s %,10d ns/query, %,d rooms per page%n",
+                name, nanos, found / QUERIES);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.RoomFacilityIndex.Match;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
+import com.example.hotelbookingv2.view.RoomFacilityEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RoomFacilityIndexTest {
+
+    private RoomFacilityIndex index;
+    private AtomicInteger loads;
+    private List<RoomFacilityEntry> database;
+
+    @BeforeEach
+    void setUp() {
+        index = new RoomFacilityIndex();
+        loads = new AtomicInteger();
+        database = new ArrayList<>(List.of(
+                new RoomFacilityEntry("r1", "wifi"),
+                new RoomFacilityEntry("r1", "pool"),
+                new RoomFacilityEntry("r1", "parking"),
+                new RoomFacilityEntry("r2", "wifi"),
+                new RoomFacilityEntry("r2", "pool"),
+                new RoomFacilityEntry("r3", "wifi"),
+                new RoomFacilityEntry("r4", "parking")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Supplier<List<RoomFacilityEntry>> all() {
+        return () -> {
+            loads.incrementAndGet();
+            return List.copyOf(database);
+        };
+    }
+
+    private Function<Collection<String>, List<RoomFacilityEntry>> byRooms() {
+        return rooms -> database.stream().filter(entry -> rooms.contains(entry.roomId()))
+                .toList();
+    }
+
+    private List<String> find(Match match, String... facilities) {
+        return index.find(List.of(facilities), match, null, 100, all(), byRooms()).roomIds();
+    }
+
+    @Test
+    void find_intersectsOrUnitesBitmaps() {
+        assertEquals(List.of("r1", "r2", "r3"), find(Match.ALL, "wifi"));
+        assertEquals(List.of("r1", "r2"), find(Match.ALL, "wifi", "pool"));
+        assertEquals(List.of("r1"), find(Match.ALL, "wifi", "pool", "parking"));
+        assertEquals(List.of("r1", "r2", "r4"), find(Match.ANY, "pool", "parking"));
+        assertEquals(List.of(), find(Match.ALL, "wifi", "sauna"));
+        assertEquals(List.of("r1", "r2", "r3"), find(Match.ANY, "wifi", "sauna"));
+        assertEquals(4, index.size());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void find_pagesFollowCursor() {
+        RoomFacilityIndex.Page first = index.find(Set.of("wifi"), Match.ALL, null, 2,
+                all(), byRooms());
+        RoomFacilityIndex.Page last = index.find(Set.of("wifi"), Match.ALL, first.lastKey(),
+                2, all(), byRooms());
+
+        assertEquals(List.of("r1", "r2"), first.roomIds());
+        assertEquals(List.of("r3"), last.roomIds());
+        assertNull(last.lastKey());
+    }
+
+    @Test
+    void find_cursorFromAnotherBuild_throws() {
+        String key = index.find(Set.of("wifi"), Match.ALL, null, 1, all(), byRooms()).lastKey();
+
+        index.clear();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> index.find(Set.of("wifi"), Match.ALL, key, 1, all(), byRooms()));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.find(Set.of("wifi"), Match.ALL, "garbage", 1, all(), byRooms()));
+    }
+
+    @Test
+    void addAndRemove_updateBitmapsWithoutReload() {
+        find(Match.ALL, "wifi");
+
+        index.add("r3", "pool");
+        index.remove("r4", "parking");
+        index.add("r5", "parking");
+
+        assertEquals(List.of("r1", "r2", "r3"), find(Match.ALL, "wifi", "pool"));
+        // Новый номер получает следующий порядковый номер, а не освободившийся у r4
+        assertEquals(List.of("r1", "r5"), find(Match.ANY, "parking"));
+        assertEquals(4, index.size());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateRoom_reloadsOnlyThatRoom() {
+        find(Match.ALL, "wifi");
+        database.removeIf(entry -> entry.roomId().equals("r2"));
+        database.add(new RoomFacilityEntry("r6", "wifi"));
+
+        index.invalidateRoom("r2");
+        index.invalidateRoom("r6");
+
+        assertEquals(List.of("r1", "r3", "r6"), find(Match.ALL, "wifi"));
+        assertEquals(List.of("r1"), find(Match.ALL, "pool"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void find_cursorSurvivesIncrementalUpdates() {
+        RoomFacilityIndex.Page first = index.find(Set.of("wifi"), Match.ALL, null, 2,
+                all(), byRooms());
+        database.removeIf(entry -> entry.roomId().equals("r1"));
+        database.add(new RoomFacilityEntry("r1", "wifi"));
+        database.add(new RoomFacilityEntry("r0", "wifi"));
+        index.invalidateRoom("r1");
+        index.invalidateRoom("r0");
+        index.remove("r2", "wifi");
+        index.add("r2", "wifi");
+
+        RoomFacilityIndex.Page next = index.find(Set.of("wifi"), Match.ALL, first.lastKey(),
+                2, all(), byRooms());
+
+        // Изменённые r1 и r2 не повторяются, новый r0 идёт после курсора
+        assertEquals(List.of("r1", "r2"), first.roomIds());
+        assertEquals(List.of("r3", "r0"), next.roomIds());
+        assertNull(next.lastKey());
+    }
+
+    @Test
+    void removeFacility_dropsBitmapAndReleasesRooms() {
+        find(Match.ALL, "wifi");
+
+        index.removeFacility("parking");
+
+        assertEquals(List.of(), find(Match.ANY, "parking"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void changesInTransaction_applyAfterCommit() {
+        find(Match.ALL, "wifi");
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.add("r4", "wifi");
+        assertEquals(List.of("r1", "r2", "r3"), find(Match.ALL, "wifi"));
+
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(List.of("r1", "r2", "r3", "r4"), find(Match.ALL, "wifi"));
+    }
+
+    @Test
+    void changeDuringLoad_isNotLost() {
+        Supplier<List<RoomFacilityEntry>> racing = () -> {
+            List<RoomFacilityEntry> snapshot = List.copyOf(database);
+            database.add(new RoomFacilityEntry("r3", "pool"));
+            index.add("r3", "pool");
+            return snapshot;
+        };
+
+        index.find(Set.of("pool"), Match.ALL, null, 100, racing, byRooms());
+
+        // Снимок, прочитанный до изменения, не остался индексом
+        assertEquals(0, index.size());
+        assertEquals(List.of("r1", "r2", "r3"), find(Match.ALL, "pool"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void slowerRefresh_doesNotOverwriteNewerOne() throws Exception {
+        find(Match.ALL, "wifi");
+        List<RoomFacilityEntry> shared = new CopyOnWriteArrayList<>(database);
+        Function<Collection<String>, List<RoomFacilityEntry>> read = rooms -> shared.stream()
+                .filter(entry -> rooms.contains(entry.roomId())).toList();
+        CountDownLatch readOld = new CountDownLatch(1);
+        CountDownLatch newerApplied = new CountDownLatch(1);
+        Function<Collection<String>, List<RoomFacilityEntry>> slow = rooms -> {
+            List<RoomFacilityEntry> old = read.apply(rooms);
+            readOld.countDown();
+            try {
+                newerApplied.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return old;
+        };
+        index.invalidateRoom("r2");
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // Первый поиск забрал r2 и прочитал старые строки; пока он стоит, r2 меняют,
+            // и второй поиск применяет новые строки раньше первого
+            Future<?> slower = pool.submit(() ->
+                    index.find(Set.of("wifi"), Match.ALL, null, 100, all(), slow));
+            readOld.await();
+            shared.removeIf(entry -> entry.roomId().equals("r2"));
+            index.invalidateRoom("r2");
+            index.find(Set.of("wifi"), Match.ALL, null, 100, all(), read);
+            newerApplied.countDown();
+            slower.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(List.of("r1", "r3"),
+                index.find(Set.of("wifi"), Match.ALL, null, 100, all(), read).roomIds());
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.RoomPriceIndex.Filter;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
+import com.example.hotelbookingv2.view.RoomPriceEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Запуск: mvn test -Dtest=RoomPriceIndexBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RoomPriceIndexBenchmark {
+
+    private static final int ROOMS = 2_000_000;
+    private static final int HOTELS = 100_000;
+    private static final int CITIES = 500;
+    private static final String[] TYPES = {"Standard", "Deluxe", "Suite", "Family", "Single"};
+    private static final int QUERIES = 20_000;
+    private static final int UPDATES = 1_000;
+
+    @Test
+    void searchLatencyAtTwoMillionRooms() {
+        List<RoomPriceEntry> entries = new ArrayList<>(ROOMS);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < ROOMS; i++) {
+            int hotel = random.nextInt(HOTELS);
+            entries.add(new RoomPriceEntry("room-" + i, TYPES[random.nextInt(TYPES.length)],
+                    20.0 + random.nextInt(100_000) / 100.0, "hotel-" + hotel,
+                    "city-" + hotel % CITIES));
+        }
+        RoomPriceIndex index = new RoomPriceIndex();
+        long buildStart = System.nanoTime();
+        find(index, new Filter(null, null, 0, 1), () -> entries);
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        entries.clear();
+
+        report("cheapest 20", () -> find(index, new Filter(null, null, 0,
+                Double.POSITIVE_INFINITY), List::of));
+        report("type + range", () -> find(index, new Filter(TYPES[random.nextInt(TYPES.length)],
+                null, 100, 120), List::of));
+        report("city + range", () -> find(index, new Filter(null,
+                "city-" + random.nextInt(CITIES), 0, 120), List::of));
+        report("city + type", () -> find(index, new Filter(TYPES[random.nextInt(TYPES.length)],
+                "city-" + random.nextInt(CITIES), 0, Double.POSITIVE_INFINITY), List::of));
+
+        long updateStart = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            String roomId = "room-" + random.nextInt(ROOMS);
+            index.invalidateRoom(roomId);
+            find(index, new Filter(null, null, 0, 1), List::of, List.of(new RoomPriceEntry(
+                    roomId, TYPES[0], 50.0, "hotel-0", "city-0")));
+        }
+        System.out.printf("%-14s %,10d us/update%n", "update + query",
+                (System.nanoTime() - updateStart) / UPDATES / 1_000);
+        System.out.printf("build: %,d rooms in %d ms%n", index.size(), buildMillis);
+    }
+
+    private static RoomPriceIndex.Page find(RoomPriceIndex index, Filter filter,
+                                            Supplier<List<RoomPriceEntry>> all) {
+        return find(index, filter, all, List.of());
+    }
+
+    private static RoomPriceIndex.Page find(RoomPriceIndex index, Filter filter,
+                                            Supplier<List<RoomPriceEntry>> all,
+                                            List<RoomPriceEntry> changed) {
+        return index.find(filter, null, 20, all, rooms -> changed, hotels -> List.of());
+    }
+
+    private static void report(String name, Supplier<RoomPriceIndex.Page> query) {
+        for (int i = 0; i < QUERIES / 10; i++) {
+            query.get();
+        }
+        long found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            found += query.get().roomIds().size();
+        }
+        long nanos = (System.nanoTime() - start) / QUERIES;
+        System.out.printf("%-14s %,10d ns/query, %,d rooms per page%n",
+                name, nanos, found / QUERIES);
+    }
+}
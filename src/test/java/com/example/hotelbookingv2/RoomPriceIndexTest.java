@@ -0,0 +1,220 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.RoomPriceIndex.Filter;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
+import com.example.hotelbookingv2.view.RoomPriceEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RoomPriceIndexTest {
+
+    private static final double ANY = Double.POSITIVE_INFINITY;
+
+    private RoomPriceIndex index;
+    private AtomicInteger loads;
+    private List<RoomPriceEntry> database;
+
+    @BeforeEach
+    void setUp() {
+        index = new RoomPriceIndex();
+        loads = new AtomicInteger();
+        database = new ArrayList<>(List.of(
+                new RoomPriceEntry("r1", "Deluxe", 150.0, "h1", "Minsk"),
+                new RoomPriceEntry("r2", "Standard", 90.0, "h1", "Minsk"),
+                new RoomPriceEntry("r3", "Deluxe", 110.0, "h2", "Minsk"),
+                new RoomPriceEntry("r4", "Standard", 60.0, "h3", "Paris"),
+                new RoomPriceEntry("r5", "Suite", 110.0, "h2", "Minsk")));
+    }
+
+    private Supplier<List<RoomPriceEntry>> all() {
+        return () -> {
+            loads.incrementAndGet();
+            return List.copyOf(database);
+        };
+    }
+
+    private Function<Collection<String>, List<RoomPriceEntry>> by(
+            Function<RoomPriceEntry, String> key) {
+        return ids -> database.stream().filter(entry -> ids.contains(key.apply(entry)))
+                .toList();
+    }
+
+    private RoomPriceIndex.Page page(Filter filter, String after, int limit) {
+        return index.find(filter, after, limit, all(), by(RoomPriceEntry::roomId),
+                by(RoomPriceEntry::hotelId));
+    }
+
+    private List<String> find(String type, String city, double min, double max) {
+        return page(new Filter(type, city, min, max), null, 100).roomIds();
+    }
+
+    @Test
+    void find_mergesTypesCheapestFirst() {
+        assertEquals(List.of("r4", "r2", "r3", "r5", "r1"), find(null, null, 0, ANY));
+        assertEquals(List.of("r2", "r3", "r5"), find(null, "Minsk", 0, 120));
+        assertEquals(List.of("r3", "r1"), find("Deluxe", null, 100, ANY));
+        assertEquals(List.of("r3", "r5"), find(null, null, 110, 110));
+        assertEquals(List.of(), find("Cabin", null, 0, ANY));
+        assertEquals(List.of(), find(null, "Rome", 0, ANY));
+        assertEquals(5, index.size());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void find_pagesFollowPriceAndIdKey() {
+        Filter minsk = new Filter(null, "Minsk", 0, ANY);
+        RoomPriceIndex.Page first = page(minsk, null, 2);
+        RoomPriceIndex.Page second = page(minsk, first.lastKey(), 2);
+
+        assertEquals(List.of("r2", "r3"), first.roomIds());
+        assertEquals(List.of("r5", "r1"), second.roomIds());
+        assertNull(second.lastKey());
+        // Ключ — цена и id, а не позиция: после перестроения он по-прежнему верен
+        index.clear();
+        assertEquals(List.of("r5", "r1"), page(minsk, first.lastKey(), 2).roomIds());
+    }
+
+    @Test
+    void find_malformedKey_throws() {
+        Filter any = new Filter(null, null, 0, ANY);
+
+        assertThrows(IllegalArgumentException.class, () -> page(any, "garbage", 1));
+        assertThrows(IllegalArgumentException.class, () -> page(any, "cheap:r1", 1));
+    }
+
+    @Test
+    void invalidateRoom_movesRoomWithinAndAcrossTypes() {
+        find(null, null, 0, ANY);
+        database.set(0, new RoomPriceEntry("r1", "Standard", 50.0, "h1", "Minsk"));
+        database.remove(3);
+        database.add(new RoomPriceEntry("r6", "Deluxe", 120.0, "h2", "Minsk"));
+
+        index.invalidateRoom("r1");
+        index.invalidateRoom("r4");
+        index.invalidateRoom("r6");
+
+        assertEquals(List.of("r1", "r2"), find("Standard", null, 0, ANY));
+        assertEquals(List.of("r3", "r6"), find("Deluxe", null, 0, ANY));
+        assertEquals(5, index.size());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateHotel_rereadsCityAndRooms() {
+        find(null, null, 0, ANY);
+        database.replaceAll(entry -> entry.hotelId().equals("h2")
+                ? new RoomPriceEntry(entry.roomId(), entry.type(), entry.price(), "h2", "Paris")
+                : entry);
+        database.removeIf(entry -> entry.hotelId().equals("h3"));
+
+        index.invalidateHotel("h2");
+        index.invalidateHotel("h3");
+
+        assertEquals(List.of("r3", "r5"), find(null, "Paris", 0, ANY));
+        assertEquals(List.of("r2", "r1"), find(null, "Minsk", 0, ANY));
+        assertEquals(4, index.size());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void changeDuringLoad_isNotLost() {
+        Supplier<List<RoomPriceEntry>> racing = () -> {
+            List<RoomPriceEntry> snapshot = List.copyOf(database);
+            database.add(new RoomPriceEntry("r6", "Suite", 10.0, "h1", "Minsk"));
+            index.invalidateRoom("r6");
+            return snapshot;
+        };
+
+        index.find(new Filter(null, null, 0, ANY), null, 100, racing, by(RoomPriceEntry::roomId),
+                by(RoomPriceEntry::hotelId));
+
+        // Снимок, прочитанный до изменения, не остался индексом
+        assertEquals(0, index.size());
+        assertEquals(List.of("r6", "r5"), find("Suite", null, 0, ANY));
+    }
+
+    @Test
+    void invalidateDuringBuild_isNeverLost() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                database = new CopyOnWriteArrayList<>(database.subList(0, 5));
+                index.clear();
+                CyclicBarrier start = new CyclicBarrier(2);
+
+                // Запись может прийти в любой момент построения, в том числе между
+                // окончанием чтения из базы и установкой индекса
+                Future<?> build = pool.submit(() -> {
+                    start.await();
+                    return find(null, null, 0, ANY);
+                });
+                Future<?> write = pool.submit(() -> {
+                    start.await();
+                    database.add(new RoomPriceEntry("r6", "Suite", 10.0, "h1", "Minsk"));
+                    index.invalidateRoom("r6");
+                    return null;
+                });
+                build.get();
+                write.get();
+
+                assertEquals(List.of("r6", "r5"), find("Suite", null, 0, ANY));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void slowerRefresh_doesNotOverwriteNewerOne() throws Exception {
+        database = new CopyOnWriteArrayList<>(database);
+        find(null, null, 0, ANY);
+        CountDownLatch readOld = new CountDownLatch(1);
+        CountDownLatch newerApplied = new CountDownLatch(1);
+        Function<Collection<String>, List<RoomPriceEntry>> slow = rooms -> {
+            List<RoomPriceEntry> old = by(RoomPriceEntry::roomId).apply(rooms);
+            readOld.countDown();
+            try {
+                newerApplied.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return old;
+        };
+        index.invalidateRoom("r2");
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // Первый поиск забрал r2 и прочитал старую цену; пока он стоит, цену меняют,
+            // и второй поиск применяет новую раньше первого
+            Future<?> slower = pool.submit(() -> index.find(new Filter(null, null, 0, ANY), null,
+                    100, all(), slow, by(RoomPriceEntry::hotelId)));
+            readOld.await();
+            database.removeIf(entry -> entry.roomId().equals("r2"));
+            database.add(new RoomPriceEntry("r2", "Standard", 200.0, "h1", "Minsk"));
+            index.invalidateRoom("r2");
+            find(null, null, 0, ANY);
+            newerApplied.countDown();
+            slower.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(List.of("r4", "r3", "r5", "r1", "r2"), find(null, null, 0, ANY));
+        assertEquals(1, loads.get());
+    }
+}
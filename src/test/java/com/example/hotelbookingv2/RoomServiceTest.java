@@ -1,6 +1,13 @@
 package com.example.hotelbookingv2;
 
+import com.example.hotelbookingv2.cache.FacilityCache;
+import com.example.hotelbookingv2.cache.HotelCache;
+import com.example.hotelbookingv2.cache.HotelResponseCache;
+import com.example.hotelbookingv2.cache.InvalidationBus;
+import com.example.hotelbookingv2.cache.NegativeCache;
 import com.example.hotelbookingv2.cache.RoomCache;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
 import com.example.hotelbookingv2.exception.AlreadyExistsException;
 import com.example.hotelbookingv2.exception.InvalidInputException;
 import com.example.hotelbookingv2.exception.ResourceNotFoundException;
@@ -9,7 +16,13 @@ import com.example.hotelbookingv2.model.Hotel;
 import com.example.hotelbookingv2.model.Room;
 import com.example.hotelbookingv2.repository.FacilityRepository;
 import com.example.hotelbookingv2.repository.RoomRepository;
+import com.example.hotelbookingv2.service.ReadModelLoader;
 import com.example.hotelbookingv2.service.RoomService;
+import com.example.hotelbookingv2.view.KeysetPage;
+import com.example.hotelbookingv2.view.RoomFacilityEntry;
+import com.example.hotelbookingv2.view.RoomPriceEntry;
+import com.example.hotelbookingv2.view.RoomView;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,11 +30,22 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -41,6 +65,30 @@ class RoomServiceTest {
     @Mock
     private RoomCache roomCache;
 
+    @Mock
+    private NegativeCache negativeCache;
+
+    @Mock
+    private HotelResponseCache hotelResponseCache;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    @Mock
+    private HotelCache hotelCache;
+
+    @Mock
+    private ReadModelLoader readModelLoader;
+
+    @Spy
+    private FacilityCache facilityCache = new FacilityCache();
+
+    @Spy
+    private RoomFacilityIndex facilityIndex = new RoomFacilityIndex();
+
+    @Spy
+    private RoomPriceIndex priceIndex = new RoomPriceIndex();
+
     private Room sampleRoom;
 
     @BeforeEach
@@ -56,29 +104,58 @@ class RoomServiceTest {
         sampleRoom.setHotel(hotel);
     }
 
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void loadThroughCache(String id) {
+        when(roomCache.get(eq(id), any())).thenAnswer(invocation -> {
+            Function<String, RoomView> loader = invocation.getArgument(1);
+            return loader.apply(id);
+        });
+    }
+
     @Test
     void findRoomsByHotel_notFound() {
-        when(roomRepository.findRoomsByHotel("hotel1")).thenReturn(Collections.emptyList());
+        when(roomRepository.findRoomsByHotel(eq("hotel1"), eq(""), any()))
+                .thenReturn(Collections.emptyList());
 
-        assertThrows(ResourceNotFoundException.class, () -> roomService.findRoomsByHotel("hotel1"));
+        assertThrows(ResourceNotFoundException.class,
+                        () -> roomService.findRoomsByHotel("hotel1", null, 20));
     }
 
     @Test
     void findRoomsByFacility_notFound() {
-        when(roomRepository.findRoomsByFacility("WiFi")).thenReturn(Collections.emptyList());
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+        when(roomRepository.findRoomsByFacilityId(eq("f1"), eq(""), any()))
+                .thenReturn(Collections.emptyList());
 
-        assertThrows(ResourceNotFoundException.class, () -> roomService.findRoomsByFacility("WiFi"));
+        assertThrows(ResourceNotFoundException.class,
+                        () -> roomService.findRoomsByFacility("WiFi", null, 20));
+    }
+
+    @Test
+    void findRoomsByFacility_unknownName_skipsRoomQuery() {
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+
+        assertThrows(ResourceNotFoundException.class,
+                        () -> roomService.findRoomsByFacility("Pool", null, 20));
+
+        verify(roomRepository, never()).findRoomsByFacilityId(any(), any(), any());
     }
 
     @Test
     void getRoomById_success_fromCache() {
-        Room room = new Room();
-        when(roomCache.get("room1")).thenReturn(room);
+        RoomView room = RoomView.from(sampleRoom);
+        when(roomCache.get(eq("room1"), any())).thenReturn(room);
 
-        Room result = roomService.getRoomById("room1");
+        RoomView result = roomService.getRoomById("room1");
 
         assertEquals(room, result);
-        verify(roomCache).get("room1");
+        verify(roomCache).get(eq("room1"), any());
         verify(roomRepository, Mockito.never()).findById(Mockito.anyString());
     }
 
@@ -88,26 +165,35 @@ class RoomServiceTest {
         Room room = new Room();
 
         // Настроим mock поведения для кеша и репозитория
-        when(roomCache.get("room1")).thenReturn(null);  // Кеш возвращает null
-        when(roomRepository.findById("room1")).thenReturn(Optional.of(room));  // Репозиторий возвращает комнату
-        Mockito.doNothing().when(roomCache).put("room1", room);  // Настроим кеш на прием комнаты
+        loadThroughCache("room1");  // Кеш не содержит комнату и вызывает загрузчик
+        when(roomRepository.findById("room1"))
+                .thenReturn(Optional.of(room));  // Репозиторий возвращает комнату
 
         // Когда
-        Room result = roomService.getRoomById("room1");
+        RoomView result = roomService.getRoomById("room1");
 
         // Тогда
-        assertEquals(room, result);  // Проверяем, что результат — это наша комната
-        verify(roomCache).get("room1");  // Проверяем, что кеш был проверен
+        assertEquals(RoomView.from(room), result);  // Проверяем, что результат — это наша комната
+        verify(roomCache).get(eq("room1"), any());  // Проверяем, что кеш был проверен
         verify(roomRepository).findById("room1");  // Проверяем, что репозиторий был вызван
-        verify(roomCache).put("room1", room);  // Проверяем, что put был вызван для обновления кеша
     }
 
     @Test
     void getRoomById_notFound() {
-        when(roomCache.get("room1")).thenReturn(null);
+        loadThroughCache("room1");
         when(roomRepository.findById("room1")).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> roomService.getRoomById("room1"));
+        verify(negativeCache).markMissing(NegativeCache.Kind.ROOM, "room1");
+    }
+
+    @Test
+    void getRoomById_knownMissing() {
+        loadThroughCache("room1");
+        when(negativeCache.isMissing(NegativeCache.Kind.ROOM, "room1")).thenReturn(true);
+
+        assertThrows(ResourceNotFoundException.class, () -> roomService.getRoomById("room1"));
+        verify(roomRepository, never()).findById(anyString());
     }
 
     @Test
@@ -137,7 +223,7 @@ class RoomServiceTest {
 
     @Test
     void deleteRoom_notFound() {
-        when(roomRepository.existsById("room1")).thenReturn(false);
+        when(roomRepository.findById("room1")).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> roomService.deleteRoom("room1"));
     }
@@ -151,25 +237,28 @@ class RoomServiceTest {
 
         when(roomRepository.findById("room1")).thenReturn(Optional.empty());
 
-        assertThrows(ResourceNotFoundException.class, () -> roomService.updateRoom("room1", updatedRoom));
+        assertThrows(ResourceNotFoundException.class,
+                        () -> roomService.updateRoom("room1", updatedRoom));
     }
 
     @Test
     void findRoomsByHotel_invalidId_throws() {
-        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByHotel(""));
+        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByHotel("", null, 20));
     }
 
     @Test
     void findRoomsByHotel_notFound_throws() {
-        when(roomRepository.findRoomsByHotel("hotel-1")).thenReturn(List.of());
+        when(roomRepository.findRoomsByHotel(eq("hotel-1"), eq(""), any())).thenReturn(List.of());
         assertThrows(ResourceNotFoundException.class,
-                () -> roomService.findRoomsByHotel("hotel-1"));
+                () -> roomService.findRoomsByHotel("hotel-1", null, 20));
     }
 
     @Test
     void findRoomsByFacility_success() {
-        when(roomRepository.findRoomsByFacility("WiFi")).thenReturn(List.of(sampleRoom));
-        List<Room> result = roomService.findRoomsByFacility("WiFi");
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+        when(roomRepository.findRoomsByFacilityId(eq("f1"), eq(""), any()))
+                .thenReturn(List.of(sampleRoom));
+        List<RoomView> result = roomService.findRoomsByFacility("WiFi", null, 20).items();
         assertEquals(1, result.size());
     }
 
@@ -177,18 +266,18 @@ class RoomServiceTest {
 
     @Test
     void getRoomById_fromCache() {
-        when(roomCache.get("room-1")).thenReturn(sampleRoom);
-        Room result = roomService.getRoomById("room-1");
-        assertEquals(sampleRoom, result);
+        when(roomCache.get(eq("room-1"), any())).thenReturn(RoomView.from(sampleRoom));
+        RoomView result = roomService.getRoomById("room-1");
+        assertEquals(RoomView.from(sampleRoom), result);
     }
 
     @Test
     void getRoomById_notInCache_fetchFromRepo() {
-        when(roomCache.get("room-1")).thenReturn(null);
+        loadThroughCache("room-1");
         when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));
-        Room result = roomService.getRoomById("room-1");
-        assertEquals(sampleRoom, result);
-        verify(roomCache).put("room-1", sampleRoom);
+        RoomView result = roomService.getRoomById("room-1");
+        assertEquals(RoomView.from(sampleRoom), result);
+        verify(roomRepository).findById("room-1");
     }
 
     @Test
@@ -197,7 +286,7 @@ class RoomServiceTest {
         when(roomRepository.save(ArgumentMatchers.<Room>any())).thenReturn(sampleRoom);
         Room result = roomService.saveRoom(sampleRoom);
         assertEquals(sampleRoom, result);
-        verify(roomCache).put("room-1", sampleRoom);
+        verify(roomCache).remove("room-1");
     }
 
 
@@ -209,10 +298,30 @@ class RoomServiceTest {
 
     @Test
     void deleteRoom_success() {
-        when(roomRepository.existsById("room-1")).thenReturn(true);
+        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));
         roomService.deleteRoom("room-1");
-        verify(roomRepository).deleteById("room-1");
+        verify(roomRepository).delete(sampleRoom);
         verify(roomCache).remove("room-1");
+        verify(hotelCache).removeHotel("hotel-1");
+        verify(hotelResponseCache).invalidate("hotel-1");
+    }
+
+    @Test
+    void deleteRoom_inTransaction_evictsNothingBeforeCommit() {
+        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));
+        TransactionSynchronizationManager.initSynchronization();
+
+        roomService.deleteRoom("room-1");
+
+        // Промах до коммита перечитал бы старую строку и закэшировал её снова
+        verify(roomCache, never()).remove(any());
+        verify(hotelCache, never()).removeHotel(any());
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        verify(roomCache).remove("room-1");
+        verify(hotelCache).removeHotel("hotel-1");
     }
 
     @Test
@@ -231,7 +340,7 @@ class RoomServiceTest {
 
         Room result = roomService.updateRoom("room-1", update);
         assertEquals("102", result.getRoomNumber());
-        verify(roomCache).put("room-1", sampleRoom);
+        verify(roomCache).remove("room-1");
     }
 
     @Test
@@ -243,43 +352,239 @@ class RoomServiceTest {
 
     @Test
     void findRoomsByHotel_success() {
-        when(roomRepository.findRoomsByHotel("hotel-1")).thenReturn(List.of(sampleRoom));
-        List<Room> result = roomService.findRoomsByHotel("hotel-1");
+        when(roomRepository.findRoomsByHotel(eq("hotel-1"), eq(""), any()))
+                .thenReturn(List.of(sampleRoom));
+        List<RoomView> result = roomService.findRoomsByHotel("hotel-1", null, 20).items();
         assertEquals(1, result.size());
     }
 
+    @Test
+    void forEachRoomWithFacility_streamsByFacilityId() {
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+        Consumer<Room> action = room -> { };
+
+        roomService.forEachRoomWithFacility("WiFi", action);
+
+        verify(readModelLoader).forEachRoomWithFacility("f1", action);
+    }
+
+    @Test
+    void forEachRoomWithFacility_unknownName_throws() {
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> roomService.forEachRoomWithFacility("Pool", room -> { }));
+        verifyNoInteractions(readModelLoader);
+    }
+
+    @Test
+    void searchByFacilities_matchesAllOrAnyThroughIndex() {
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi"),
+                new Facility("f2", "Pool")));
+        when(roomRepository.findFacilityEntries()).thenReturn(List.of(
+                new RoomFacilityEntry("room-1", "f1"),
+                new RoomFacilityEntry("room-1", "f2"),
+                new RoomFacilityEntry("room-2", "f1"),
+                new RoomFacilityEntry("room-3", "f2")));
+        loadAllThroughCache();
+
+        KeysetPage<RoomView> all = roomService.searchByFacilities(List.of("WiFi", "Pool"),
+                RoomFacilityIndex.Match.ALL, null, 20);
+        KeysetPage<RoomView> any = roomService.searchByFacilities(List.of("WiFi", "Pool"),
+                RoomFacilityIndex.Match.ANY, null, 20);
+
+        assertEquals(List.of("room-1"), all.items().stream().map(RoomView::id).toList());
+        assertEquals(List.of("room-1", "room-2", "room-3"),
+                any.items().stream().map(RoomView::id).toList());
+        verify(roomRepository, times(1)).findFacilityEntries();
+    }
+
+    @Test
+    void searchByFacilities_pageContinuesAfterCursor() {
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+        when(roomRepository.findFacilityEntries()).thenReturn(List.of(
+                new RoomFacilityEntry("room-1", "f1"),
+                new RoomFacilityEntry("room-2", "f1")));
+        loadAllThroughCache();
+
+        KeysetPage<RoomView> first = roomService.searchByFacilities(List.of("WiFi"),
+                RoomFacilityIndex.Match.ALL, null, 1);
+        KeysetPage<RoomView> last = roomService.searchByFacilities(List.of("WiFi"),
+                RoomFacilityIndex.Match.ALL, first.nextCursor(), 1);
+
+        assertEquals(List.of("room-1"), first.items().stream().map(RoomView::id).toList());
+        assertEquals(List.of("room-2"), last.items().stream().map(RoomView::id).toList());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void searchByFacilities_unknownNameWithAll_skipsIndex() {
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+
+        assertTrue(roomService.searchByFacilities(List.of("WiFi", "Pool"),
+                RoomFacilityIndex.Match.ALL, null, 20).items().isEmpty());
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void searchByFacilities_foreignCursor_throws() {
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f1", "WiFi")));
+        when(roomRepository.findFacilityEntries()).thenReturn(List.of());
+        String cursor = KeysetPage.of(List.of(), "999:0").nextCursor();
+
+        assertThrows(InvalidInputException.class, () -> roomService.searchByFacilities(
+                List.of("WiFi"), RoomFacilityIndex.Match.ALL, cursor, 20));
+    }
+
+    @Test
+    void searchByFacilities_blankName_throws() {
+        assertThrows(InvalidInputException.class, () -> roomService.searchByFacilities(
+                List.of("WiFi", " "), RoomFacilityIndex.Match.ANY, null, 20));
+        assertThrows(InvalidInputException.class, () -> roomService.searchByFacilities(
+                List.of(), RoomFacilityIndex.Match.ANY, null, 20));
+    }
+
+    @Test
+    void searchByPrice_returnsCheapestInRangeAcrossTypes() {
+        when(roomRepository.findPriceEntries()).thenReturn(List.of(
+                new RoomPriceEntry("room-1", "Deluxe", 150.0, "hotel-1", "Minsk"),
+                new RoomPriceEntry("room-2", "Standard", 90.0, "hotel-1", "Minsk"),
+                new RoomPriceEntry("room-3", "Deluxe", 110.0, "hotel-2", "Minsk"),
+                new RoomPriceEntry("room-4", "Standard", 60.0, "hotel-3", "Paris")));
+        loadAllThroughCache();
+
+        KeysetPage<RoomView> page = roomService.searchByPrice("Minsk", null, null, 120.0,
+                null, 20);
+
+        assertEquals(List.of("room-2", "room-3"),
+                page.items().stream().map(RoomView::id).toList());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void searchByPrice_pageContinuesAfterCursor() {
+        when(roomRepository.findPriceEntries()).thenReturn(List.of(
+                new RoomPriceEntry("room-1", "Deluxe", 100.0, "hotel-1", "Minsk"),
+                new RoomPriceEntry("room-2", "Deluxe", 100.0, "hotel-1", "Minsk"),
+                new RoomPriceEntry("room-3", "Deluxe", 90.0, "hotel-1", "Minsk")));
+        loadAllThroughCache();
+
+        KeysetPage<RoomView> first = roomService.searchByPrice(null, "Deluxe", null, null,
+                null, 2);
+        KeysetPage<RoomView> last = roomService.searchByPrice(null, "Deluxe", null, null,
+                first.nextCursor(), 2);
+
+        assertEquals(List.of("room-3", "room-1"),
+                first.items().stream().map(RoomView::id).toList());
+        assertEquals(List.of("room-2"), last.items().stream().map(RoomView::id).toList());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void searchByPrice_invalidRange_throws() {
+        assertThrows(InvalidInputException.class,
+                () -> roomService.searchByPrice(null, null, 200.0, 100.0, null, 20));
+        assertThrows(InvalidInputException.class,
+                () -> roomService.searchByPrice(null, null, -1.0, null, null, 20));
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void searchByPrice_malformedCursor_throws() {
+        String cursor = KeysetPage.of(List.of(), "cheap").nextCursor();
+
+        assertThrows(InvalidInputException.class,
+                () -> roomService.searchByPrice(null, null, null, null, cursor, 20));
+    }
+
+    // Кэш пуст: все снимки страницы догружаются одним вызовом, в порядке id страницы
+    private void loadAllThroughCache() {
+        when(readModelLoader.findRoomsById(any())).thenAnswer(invocation -> invocation
+                .<Collection<String>>getArgument(0).stream()
+                .map(id -> new RoomView(id, "101", "Deluxe", 100.0, "hotel-1", List.of()))
+                .toList());
+        when(roomCache.getAll(any(), any())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            Function<Set<String>, Map<String, RoomView>> loader = invocation.getArgument(1);
+            Map<String, RoomView> loaded = loader.apply(new LinkedHashSet<>(ids));
+            Map<String, RoomView> result = new LinkedHashMap<>();
+            ids.forEach(id -> result.put(id, loaded.get(id)));
+            return result;
+        });
+    }
+
+    @Test
+    void findRoomsByHotel_pageContinuesAfterCursor() {
+        Room second = new Room();
+        second.setId("room-2");
+        second.setHotel(sampleRoom.getHotel());
+        when(roomRepository.findRoomsByHotel("hotel-1", "", Limit.of(2)))
+                .thenReturn(List.of(sampleRoom, second));
+        when(roomRepository.findRoomsByHotel("hotel-1", "room-1", Limit.of(2)))
+                .thenReturn(List.of(second));
+
+        KeysetPage<RoomView> first = roomService.findRoomsByHotel("hotel-1", null, 1);
+        KeysetPage<RoomView> last = roomService.findRoomsByHotel("hotel-1",
+                first.nextCursor(), 1);
+
+        assertEquals(List.of("room-1"), first.items().stream().map(RoomView::id).toList());
+        assertEquals(List.of("room-2"), last.items().stream().map(RoomView::id).toList());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void findRoomsByHotel_emptyPageAfterCursor_isNotAnError() {
+        String cursor = KeysetPage.of(List.of(), "room-9").nextCursor();
+        when(roomRepository.findRoomsByHotel(eq("hotel-1"), eq("room-9"), any()))
+                .thenReturn(List.of());
+
+        assertTrue(roomService.findRoomsByHotel("hotel-1", cursor, 20).items().isEmpty());
+    }
+
+    @Test
+    void findRoomsByHotel_pageSizeAboveMaximum_throws() {
+        assertThrows(InvalidInputException.class,
+                () -> roomService.findRoomsByHotel("hotel-1", null, KeysetPage.MAX_LIMIT + 1));
+        verifyNoInteractions(roomRepository);
+    }
+
     @Test
     void findRoomsByFacility_invalidFacility_throws() {
-        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByFacility(""));
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.findRoomsByFacility("", null, 20));
     }
 
     @Test
     void findRoomsByHotel_invalidId_throws1() {
-        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByHotel(""));
+        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByHotel("", null, 20));
     }
 
     @Test
     void findRoomsByHotel_nullId_throwsInvalidInputException() {
-        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByHotel(null));
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.findRoomsByHotel(null, null, 20));
     }
 
     @Test
     void findRoomsByHotel_blankId_throwsInvalidInputException() {
-        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByHotel(""));
+        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByHotel("", null, 20));
     }
 
     @Test
     void findRoomsByFacility_nullFacility_throwsInvalidInputException() {
-        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByFacility(null));
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.findRoomsByFacility(null, null, 20));
     }
 
     @Test
     void findRoomsByFacility_blankFacility_throwsInvalidInputException() {
-        assertThrows(InvalidInputException.class, () -> roomService.findRoomsByFacility(""));
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.findRoomsByFacility("", null, 20));
     }
 
     @Test
     void getRoomById_nullId_throwsInvalidInputException() {
+        loadThroughCache(null);
         assertThrows(ResourceNotFoundException.class, () -> roomService.getRoomById(null));
     }
 
@@ -362,7 +667,8 @@ class RoomServiceTest {
         room.setType("Single");
         room.setHotel(new Hotel());
 
-        assertThrows(NullPointerException.class, () -> roomService.saveRoom(room)); // Ожидаем InvalidInputException
+        assertThrows(NullPointerException.class,
+                        () -> roomService.saveRoom(room)); // Ожидаем InvalidInputException
     }
 
     @Test
@@ -373,7 +679,8 @@ class RoomServiceTest {
         room.setType("Single");
         room.setHotel(new Hotel());
 
-        assertThrows(InvalidInputException.class, () -> roomService.saveRoom(room)); // Ожидаем InvalidInputException
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.saveRoom(room)); // Ожидаем InvalidInputException
     }
 
     @Test
@@ -384,7 +691,8 @@ class RoomServiceTest {
         room.setType("Single");
         room.setHotel(new Hotel());
 
-        assertThrows(InvalidInputException.class, () -> roomService.saveRoom(room)); // Ожидаем InvalidInputException
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.saveRoom(room)); // Ожидаем InvalidInputException
     }
 
     @Test
@@ -394,14 +702,16 @@ class RoomServiceTest {
         updatedRoom.setPrice(150.0);
         updatedRoom.setType("Double");
 
-        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
-        when(roomRepository.save(sampleRoom)).thenReturn(sampleRoom);  // Мокируем успешное сохранение
+        when(roomRepository.findById("room-1"))
+                .thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
+        when(roomRepository.save(sampleRoom))
+                .thenReturn(sampleRoom);  // Мокируем успешное сохранение
 
         Room result = roomService.updateRoom("room-1", updatedRoom); // Вызываем метод updateRoom
 
         assertEquals("102", result.getRoomNumber());  // Проверяем, что номер был обновлен
         assertEquals(150.0, result.getPrice());  // Проверяем, что цена была обновлена
-        verify(roomCache).put("room-1", sampleRoom);  // Проверяем, что кеш был обновлен
+        verify(roomCache).remove("room-1");  // Проверяем, что кеш был обновлен
     }
 
     @Test
@@ -411,9 +721,11 @@ class RoomServiceTest {
         updatedRoom.setPrice(150.0);
         updatedRoom.setType("Double");
 
-        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
+        when(roomRepository.findById("room-1"))
+                .thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
 
-        assertThrows(InvalidInputException.class, () -> roomService.updateRoom("room-1", updatedRoom));  // Ожидаем InvalidInputException
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.updateRoom("room-1", updatedRoom));  // Ожидаем InvalidInputException
     }
 
     @Test
@@ -423,9 +735,11 @@ class RoomServiceTest {
         updatedRoom.setPrice(150.0);
         updatedRoom.setType("Double");
 
-        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
+        when(roomRepository.findById("room-1"))
+                .thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
 
-        assertThrows(InvalidInputException.class, () -> roomService.updateRoom("room-1", updatedRoom));  // Ожидаем InvalidInputException
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.updateRoom("room-1", updatedRoom));  // Ожидаем InvalidInputException
     }
 
     @Test
@@ -435,9 +749,11 @@ class RoomServiceTest {
         updatedRoom.setPrice(-150.0);  // Отрицательная цена
         updatedRoom.setType("Double");
 
-        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
+        when(roomRepository.findById("room-1"))
+                .thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
 
-        assertThrows(InvalidInputException.class, () -> roomService.updateRoom("room-1", updatedRoom));  // Ожидаем InvalidInputException
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.updateRoom("room-1", updatedRoom));  // Ожидаем InvalidInputException
     }
 
     @Test
@@ -452,14 +768,17 @@ class RoomServiceTest {
         updatedRoom.setType("Suite");
         updatedRoom.setFacilities(List.of(facility));  // Добавляем удобство
 
-        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
-        when(facilityRepository.findAllById(List.of("wifi"))).thenReturn(List.of(facility));  // Мокируем поиск удобства
-        when(roomRepository.save(sampleRoom)).thenReturn(sampleRoom);  // Мокируем сохранение обновленной комнаты
+        when(roomRepository.findById("room-1"))
+                .thenReturn(Optional.of(sampleRoom));  // Мокируем существующую комнату
+        when(facilityRepository.findAllById(List.of("wifi")))
+                .thenReturn(List.of(facility));  // Мокируем поиск удобства
+        when(roomRepository.save(sampleRoom))
+                .thenReturn(sampleRoom);  // Мокируем сохранение обновленной комнаты
 
         Room result = roomService.updateRoom("room-1", updatedRoom);  // Вызываем метод updateRoom
 
         assertTrue(result.getFacilities().contains(facility));  // Проверяем, что удобство было добавлено
-        verify(roomCache).put("room-1", sampleRoom);  // Проверяем, что кеш был обновлен
+        verify(roomCache).remove("room-1");  // Проверяем, что кеш был обновлен
     }
 
     @Test
@@ -475,27 +794,34 @@ class RoomServiceTest {
         updatedRoom.setFacilities(List.of(invalidFacility));
 
         when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));
-        when(facilityRepository.findAllById(List.of("invalid-facility"))).thenReturn(Collections.emptyList());
+        when(facilityRepository.findAllById(List.of("invalid-facility")))
+                .thenReturn(Collections.emptyList());
 
-        assertThrows(NullPointerException.class, () -> roomService.updateRoom("room-1", updatedRoom));
+        assertThrows(NullPointerException.class,
+                        () -> roomService.updateRoom("room-1", updatedRoom));
     }
 
     @Test
     void findRoomsByFacility_noRoomsFound() {
-        when(roomRepository.findRoomsByFacility("Pool")).thenReturn(Collections.emptyList());
-        assertThrows(ResourceNotFoundException.class, () -> roomService.findRoomsByFacility("Pool"));
+        when(facilityRepository.findAll()).thenReturn(List.of(new Facility("f2", "Pool")));
+        when(roomRepository.findRoomsByFacilityId(eq("f2"), eq(""), any()))
+                .thenReturn(Collections.emptyList());
+        assertThrows(ResourceNotFoundException.class,
+                        () -> roomService.findRoomsByFacility("Pool", null, 20));
     }
 
     @Test
     void deleteMultipleRooms_success() {
-        when(roomRepository.existsById("room-1")).thenReturn(true);
-        when(roomRepository.existsById("room-2")).thenReturn(true);
+        Room second = new Room();
+        second.setId("room-2");
+        when(roomRepository.findById("room-1")).thenReturn(Optional.of(sampleRoom));
+        when(roomRepository.findById("room-2")).thenReturn(Optional.of(second));
 
         roomService.deleteRoom("room-1");
         roomService.deleteRoom("room-2");
 
-        verify(roomRepository).deleteById("room-1");
-        verify(roomRepository).deleteById("room-2");
+        verify(roomRepository).delete(sampleRoom);
+        verify(roomRepository).delete(second);
         verify(roomCache).remove("room-1");
         verify(roomCache).remove("room-2");
     }
@@ -516,13 +842,14 @@ class RoomServiceTest {
         assertEquals("101", result.getRoomNumber());
         assertEquals("Single", result.getType());
         assertEquals(100.0, result.getPrice());
-        verify(roomCache).put("room-1", sampleRoom);
+        verify(roomCache).remove("room-1");
     }
 
     @Test
     void getRoomById_cacheMiss_repositoryFailure() {
-        when(roomCache.get("room-1")).thenReturn(null);
-        when(roomRepository.findById("room-1")).thenReturn(Optional.empty());  // Simulate repository failure
+        loadThroughCache("room-1");
+        when(roomRepository.findById("room-1"))
+                .thenReturn(Optional.empty());  // Simulate repository failure
 
         assertThrows(ResourceNotFoundException.class, () -> roomService.getRoomById("room-1"));
     }
@@ -530,7 +857,8 @@ class RoomServiceTest {
     @Test
     void shouldThrowInvalidInputException_WhenRoomsListIsEmpty() {
         // Проверка на пустой список
-        assertThrows(InvalidInputException.class, () -> roomService.saveRoomsBulk(new ArrayList<>()));
+        assertThrows(InvalidInputException.class,
+                        () -> roomService.saveRoomsBulk(new ArrayList<>()));
     }
 
     @Test
@@ -604,7 +932,7 @@ class RoomServiceTest {
 
         assertNotNull(savedRooms);
         verify(roomRepository, times(1)).saveAll(rooms);
-        verify(roomCache, times(1)).put(savedRooms.get(0).getId(), savedRooms.get(0));
+        verify(roomCache, times(1)).remove(savedRooms.get(0).getId());
     }
 
     @Test
@@ -709,7 +1037,7 @@ class RoomServiceTest {
 
         assertNotNull(savedRooms);
         verify(roomRepository, times(1)).saveAll(rooms);
-        verify(roomCache, times(1)).put(savedRooms.get(0).getId(), savedRooms.get(0));
+        verify(roomCache, times(1)).remove(savedRooms.get(0).getId());
     }
 
 
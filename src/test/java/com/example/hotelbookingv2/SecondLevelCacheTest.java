@@ -0,0 +1,199 @@
+package com.example.hotelbookingv2;
+
+import com.example.hotelbookingv2.cache.HotelFilterIndex;
+import com.example.hotelbookingv2.cache.RoomFacilityIndex;
+import com.example.hotelbookingv2.cache.RoomPriceIndex;
+import com.example.hotelbookingv2.model.Facility;
+import com.example.hotelbookingv2.model.Hotel;
+import com.example.hotelbookingv2.model.Room;
+import com.example.hotelbookingv2.repository.FacilityRepository;
+import com.example.hotelbookingv2.repository.HotelRepository;
+import com.example.hotelbookingv2.repository.RoomRepository;
+import com.example.hotelbookingv2.view.HotelFilterEntry;
+import com.example.hotelbookingv2.view.RoomFacilityEntry;
+import com.example.hotelbookingv2.view.RoomPriceEntry;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Число SQL-запросов на типичные чтения до прогрева кэша второго уровня и после.
+ * Каждый вызов {@link #statements} — отдельная транзакция, как отдельный HTTP-запрос.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    private static final Limit PAGE = Limit.of(20);
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private String hotelId;
+    private String facilityId;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        inTransaction(() -> {
+            roomRepository.deleteAll();
+            hotelRepository.deleteAll();
+            facilityRepository.deleteAll();
+            return null;
+        });
+        inTransaction(() -> {
+            Facility wifi = facilityRepository.save(new Facility(null, "Wi-Fi"));
+            Hotel hotel = new Hotel(null, "Ritz", "Paris", "Luxury", "2025-01-01");
+            for (int i = 0; i < 3; i++) {
+                Room room = new Room();
+                room.setRoomNumber("10" + i);
+                room.setType("Deluxe");
+                room.setPrice(100.0);
+                room.setHotel(hotel);
+                room.getFacilities().add(wifi);
+                hotel.getRooms().add(room);
+            }
+            hotelId = hotelRepository.save(hotel).getId();
+            facilityId = wifi.getId();
+            return null;
+        });
+    }
+
+    @Test
+    void hotelWithRoomsAndFacilities() {
+        Supplier<Integer> read = () -> hotelRepository.findById(hotelId).orElseThrow().getRooms()
+                .stream().mapToInt(room -> room.getFacilities().size()).sum();
+
+        long cold = statements(read);
+        long warm = statements(read);
+
+        // Отель уже в кэше после вставки; номера одним запросом, удобства всех номеров — вторым
+        assertEquals(2, cold);
+        assertEquals(0, warm);
+    }
+
+    @Test
+    void filterIndexLoadsOnlyAttributes() {
+        Supplier<List<HotelFilterEntry>> read = hotelRepository::findFilterEntries;
+
+        assertEquals(1, statements(read));
+        assertEquals(List.of(new HotelFilterEntry(hotelId, "Paris", "Luxury")),
+                inTransaction(read));
+    }
+
+    @Test
+    void facilityIndexLoadsOnlyPairs() {
+        Supplier<List<RoomFacilityEntry>> read = roomRepository::findFacilityEntries;
+        List<RoomFacilityEntry> entries = inTransaction(read);
+        String roomId = entries.get(0).roomId();
+
+        assertEquals(1, statements(read));
+        assertEquals(3, entries.size());
+        assertEquals(List.of(new RoomFacilityEntry(roomId, facilityId)), inTransaction(
+                () -> roomRepository.findFacilityEntriesByRoomIdIn(List.of(roomId))));
+    }
+
+    @Test
+    void priceIndexLoadsRoomsWithHotelCity() {
+        Supplier<List<RoomPriceEntry>> read = roomRepository::findPriceEntries;
+        List<RoomPriceEntry> entries = inTransaction(read);
+        String roomId = entries.get(0).roomId();
+
+        assertEquals(1, statements(read));
+        assertEquals(3, entries.size());
+        assertEquals(List.of(new RoomPriceEntry(roomId, "Deluxe", 100.0, hotelId,
+                "Paris")), inTransaction(() ->
+                roomRepository.findPriceEntriesByRoomIdIn(List.of(roomId))));
+        assertEquals(3, inTransaction(() ->
+                roomRepository.findPriceEntriesByHotelIdIn(List.of(hotelId))).size());
+    }
+
+    @Test
+    void streamHotelsAppliesOptionalFilters() {
+        Supplier<List<String>> paris = () -> hotelRepository.streamHotels("Paris", null)
+                .map(Hotel::getId).toList();
+        Supplier<List<String>> budget = () -> hotelRepository.streamHotels(null, "Budget")
+                .map(Hotel::getId).toList();
+
+        assertEquals(List.of(hotelId), inTransaction(paris));
+        assertEquals(List.of(), inTransaction(budget));
+    }
+
+    @Test
+    void roomsByHotelAndByFacility() {
+        Supplier<Integer> read = () -> roomRepository.findRoomsByHotel(hotelId, "", PAGE)
+                .size() + roomRepository.findRoomsByFacilityId(facilityId, "", PAGE).size();
+
+        long cold = statements(read);
+        long warm = statements(read);
+
+        assertEquals(2, cold);
+        assertEquals(0, warm);
+    }
+
+    @Test
+    void writeInvalidatesCachedQueryResults() {
+        statements(() -> roomRepository.findRoomsByHotel(hotelId, "", PAGE));
+        inTransaction(() -> {
+            Room room = new Room();
+            room.setRoomNumber("200");
+            room.setType("Suite");
+            room.setPrice(300.0);
+            room.setHotel(hotelRepository.getReferenceById(hotelId));
+            return roomRepository.save(room);
+        });
+
+        assertEquals(4, inTransaction(() -> roomRepository.findRoomsByHotel(hotelId, "", PAGE))
+                .size());
+    }
+
+    @Test
+    void roomsByHotelPageStartsAfterKey() {
+        List<Room> all = inTransaction(() -> roomRepository.findRoomsByHotel(hotelId, "", PAGE));
+        List<Room> firstTwo = inTransaction(() -> roomRepository.findRoomsByHotel(hotelId, "",
+                Limit.of(2)));
+        List<Room> rest = inTransaction(() -> roomRepository.findRoomsByHotel(hotelId,
+                firstTwo.get(1).getId(), PAGE));
+
+        assertEquals(all.subList(0, 2).stream().map(Room::getId).toList(),
+                firstTwo.stream().map(Room::getId).toList());
+        assertEquals(List.of(all.get(2).getId()), rest.stream().map(Room::getId).toList());
+    }
+
+    private long statements(Supplier<?> read) {
+        statistics.clear();
+        inTransaction(read);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+}